@@ -0,0 +1,224 @@
+/*
+ * Copyright 2022-23 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.actions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.netbeans.api.io.IOProvider;
+import org.netbeans.api.io.InputOutput;
+import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityResult;
+import uk.theretiredprogrammer.util.ApplicationException;
+import uk.theretiredprogrammer.util.UserReporting;
+
+// runs the commands of an actions properties file as a dependency graph - each step starts as soon as
+// all the steps it depends on have completed; a step which is not parallel runs on its own.
+// Each step has a new Activity for every run, so the pipeline never shares an Activity with the menu actions
+public class ActionsPipeline {
+
+    private final String iotabname;
+    private final Map<Integer, Step> steps = new LinkedHashMap<>();
+    private Execution execution;
+
+    public ActionsPipeline(String iotabname) {
+        this.iotabname = iotabname;
+    }
+
+    public void add(int number, String label, Callable<Activity> activityfactory, List<Integer> dependson, boolean parallel) {
+        steps.put(number, new Step(number, label, activityfactory, dependson, parallel));
+    }
+
+    public void validate() throws ApplicationException {
+        Map<Integer, Integer> remaining = new HashMap<>();
+        Deque<Step> ready = new ArrayDeque<>();
+        for (Step step : steps.values()) {
+            for (int dependency : step.dependson) {
+                if (!steps.containsKey(dependency)) {
+                    throw new ApplicationException("Command " + step.number + " depends on an undefined command " + dependency);
+                }
+            }
+            remaining.put(step.number, step.dependson.size());
+            if (step.dependson.isEmpty()) {
+                ready.add(step);
+            }
+        }
+        int ordered = 0;
+        while (!ready.isEmpty()) {
+            Step step = ready.remove();
+            ordered++;
+            for (Step dependent : getDependents(step)) {
+                if (remaining.merge(dependent.number, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (ordered != steps.size()) {
+            throw new ApplicationException("Command dependencies contain a cycle");
+        }
+    }
+
+    public void run() {
+        synchronized (this) {
+            if (execution != null) {
+                UserReporting.warning(iotabname, "Pipeline is already running");
+                return;
+            }
+            execution = new Execution();
+        }
+        execution.start();
+    }
+
+    private synchronized void finished() {
+        execution = null;
+    }
+
+    private List<Step> getDependents(Step step) {
+        List<Step> dependents = new ArrayList<>();
+        for (Step candidate : steps.values()) {
+            if (candidate.dependson.contains(step.number)) {
+                dependents.add(candidate);
+            }
+        }
+        return dependents;
+    }
+
+    private class Step {
+
+        private final int number;
+        private final String label;
+        private final Callable<Activity> activityfactory;
+        private final List<Integer> dependson;
+        private final boolean parallel;
+
+        Step(int number, String label, Callable<Activity> activityfactory, List<Integer> dependson, boolean parallel) {
+            this.number = number;
+            this.label = label;
+            this.activityfactory = activityfactory;
+            this.dependson = dependson;
+            this.parallel = parallel;
+        }
+    }
+
+    private class Execution {
+
+        private final InputOutput io = IOProvider.getDefault().getIO(iotabname, false);
+        private final long start = System.nanoTime();
+        private final Map<Integer, Integer> remaining = new HashMap<>();
+        private final List<Step> waiting = new ArrayList<>(steps.values());
+        private final Map<Step, Activity> active = new HashMap<>();
+        private int running = 0;
+        private boolean exclusiverunning = false;
+        private String failedlabel;
+        private boolean completed = false;
+
+        Execution() {
+            steps.values().forEach(step -> remaining.put(step.number, step.dependson.size()));
+        }
+
+        void start() {
+            io.show();
+            io.getOut().println("Running pipeline of " + steps.size() + " commands");
+            startReady();
+        }
+
+        // steps are started in command order; a waiting step which must run on its own holds back the steps after it
+        private synchronized void startReady() {
+            if (failedlabel == null && !exclusiverunning) {
+                for (Step step : new ArrayList<>(waiting)) {
+                    if (waiting.contains(step) && remaining.get(step.number) == 0) {
+                        if (!step.parallel && running > 0) {
+                            break;
+                        }
+                        startStep(step);
+                        if (failedlabel != null) {
+                            break;
+                        }
+                        if (!step.parallel) {
+                            exclusiverunning = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (running == 0 && !completed) {
+                completed = true;
+                complete();
+            }
+        }
+
+        private void startStep(Step step) {
+            waiting.remove(step);
+            Activity activity;
+            try {
+                activity = step.activityfactory.call();
+            } catch (Exception ex) {
+                UserReporting.exceptionWithMessage(iotabname, "Error creating the Activity for " + step.label, ex);
+                failed(step);
+                return;
+            }
+            running++;
+            active.put(step, activity);
+            io.getOut().println("Starting " + step.label);
+            activity.runAsync(step.label).whenComplete((result, ex) -> stepCompleted(step, result));
+        }
+
+        // the steps still running are cancelled, as the pipeline's result can no longer be used
+        private void failed(Step step) {
+            if (failedlabel == null) {
+                failedlabel = step.label;
+                UserReporting.flush();
+                active.forEach((other, activity) -> {
+                    io.getErr().println("Cancelling " + other.label);
+                    activity.cancel();
+                });
+            }
+        }
+
+        private synchronized void stepCompleted(Step step, ActivityResult result) {
+            active.remove(step);
+            running--;
+            if (!step.parallel) {
+                exclusiverunning = false;
+            }
+            UserReporting.flush();
+            if (result != null && result.isSuccess()) {
+                io.getOut().println(String.format("... %s done in %.1f s", step.label, result.getDuration().toNanos() / 1e9));
+                getDependents(step).forEach(dependent -> remaining.merge(dependent.number, -1, Integer::sum));
+            } else {
+                io.getErr().println(String.format("... %s failed (exit code %d)", step.label, result == null ? -1 : result.getExitCode()));
+                failed(step);
+            }
+            startReady();
+        }
+
+        private void complete() {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (failedlabel == null) {
+                io.getOut().println(String.format("... pipeline done in %.1f s", seconds));
+            } else {
+                io.getErr().println(String.format("... pipeline stopped after %s failed - %d commands not run, after %.1f s",
+                        failedlabel, waiting.size(), seconds));
+            }
+            finished();
+        }
+    }
+}
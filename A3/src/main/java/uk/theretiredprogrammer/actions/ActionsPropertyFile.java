@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import org.openide.filesystems.FileObject;
 import uk.theretiredprogrammer.activity.Activity;
 import uk.theretiredprogrammer.activity.ActivityImp;
@@ -58,21 +59,61 @@ public class ActionsPropertyFile {
             return;
         }
         int propertycount = Integer.parseInt(pcount);
+        String pipelinelabel = properties.getProperty("PIPELINELABEL", "Run pipeline");
+        // each folder's pipeline has its own tab
+        ActionsPipeline pipeline = new ActionsPipeline(pipelinelabel + " " + filefolder.getName());
+        boolean haspipeline = false;
         // set up the commands
         for (int j = 1; j <= propertycount; j++) {
             String prefix = Integer.toString(j);
             String command = properties.getProperty(prefix + ".command");
             if (command != null) {
                 String label = properties.getProperty(prefix + ".label");
-                Activity activity;
                 try {
-                    activity = getActivity(command, filefolder, label, properties, prefix);
-                    dynamicactions.add(new DynamicActionImp(label).onActionAsync(() -> activity.run(label)));
-                } catch (ApplicationException ex) {
+                    // each run has a new Activity, so a menu run and a pipeline run of a command can overlap
+                    Callable<Activity> activityfactory = () -> getActivity(command, filefolder, label, properties, prefix);
+                    activityfactory.call(); // reports a bad command configuration now, rather than on first use
+                    dynamicactions.add(new DynamicActionImp(label).onActionAsync(() -> runCommand(activityfactory, label)));
+                    pipeline.add(j, label, activityfactory, getDependsOn(properties, prefix),
+                            !"no".equalsIgnoreCase(properties.getProperty(prefix + ".parallel", "yes")));
+                    haspipeline = haspipeline || properties.getProperty(prefix + ".dependson") != null
+                            || properties.getProperty(prefix + ".parallel") != null;
+                } catch (Exception ex) {
                     UserReporting.exceptionWithMessage("Error when parsing the node actions properties file", ex);
                 }
             }
         }
+        // the pipeline action is only offered when the file describes how the commands are related
+        if (haspipeline) {
+            try {
+                pipeline.validate();
+                dynamicactions.add(new DynamicActionImp(pipelinelabel).onActionAsync(() -> pipeline.run()));
+            } catch (ApplicationException ex) {
+                UserReporting.exceptionWithMessage("Error when parsing the node actions properties file", ex);
+            }
+        }
+    }
+
+    private void runCommand(Callable<Activity> activityfactory, String label) {
+        try {
+            activityfactory.call().run(label);
+        } catch (Exception ex) {
+            UserReporting.exceptionWithMessage("Error when creating the Activity for " + label, ex);
+        }
+    }
+
+    private List<Integer> getDependsOn(Properties properties, String prefix) throws ApplicationException {
+        List<Integer> dependson = new ArrayList<>();
+        for (String dependency : properties.getProperty(prefix + ".dependson", "").split(",")) {
+            if (!dependency.isBlank()) {
+                try {
+                    dependson.add(Integer.parseInt(dependency.trim()));
+                } catch (NumberFormatException ex) {
+                    throw new ApplicationException("Bad value in " + prefix + ".dependson: " + dependency);
+                }
+            }
+        }
+        return dependson;
     }
     
     private Activity getActivity(String command, FileObject dir, String label, Properties properties, String prefix) throws ApplicationException {
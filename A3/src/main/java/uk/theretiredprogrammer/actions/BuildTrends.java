@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022-2023 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.actions;
+
+import java.io.IOException;
+import org.netbeans.api.io.IOProvider;
+import org.netbeans.api.io.InputOutput;
+import org.netbeans.api.project.FileOwnerQuery;
+import org.netbeans.api.project.Project;
+import org.openide.filesystems.FileObject;
+import uk.theretiredprogrammer.activity.RunHistory;
+import uk.theretiredprogrammer.util.UserReporting;
+
+// reports the run history of the project owning a folder - only offered once some history has been recorded
+public class BuildTrends {
+
+    private static final String LABEL = "Show build trends";
+
+    private final FileObject folder;
+    private final DynamicActionImp action;
+    private FileObject projectdir;
+
+    public BuildTrends(FileObject folder) {
+        this.folder = folder;
+        action = new DynamicActionImp(LABEL).onActionAsync(() -> show());
+    }
+
+    public DynamicAction getAction() {
+        return action.enable(RunHistory.getHistoryFile(getProjectDirectory()).isFile());
+    }
+
+    // found when first needed, as the owning project may still be loading when the node is created
+    private synchronized FileObject getProjectDirectory() {
+        if (projectdir == null) {
+            Project project = FileOwnerQuery.getOwner(folder);
+            projectdir = project == null ? folder : project.getProjectDirectory();
+        }
+        return projectdir;
+    }
+
+    private void show() {
+        String iotabname = "Build trends " + getProjectDirectory().getNameExt();
+        InputOutput io = IOProvider.getDefault().getIO(iotabname, false);
+        io.show();
+        io.reset();
+        try {
+            RunHistory.report(getProjectDirectory()).forEach(line -> io.getOut().println(line));
+        } catch (IOException ex) {
+            UserReporting.exceptionWithMessage(iotabname, "Error when reading the run history", ex);
+        }
+    }
+}
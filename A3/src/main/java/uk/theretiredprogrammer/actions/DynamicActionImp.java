@@ -18,7 +18,8 @@ package uk.theretiredprogrammer.actions;
 import java.awt.event.ActionEvent;
 import javax.swing.AbstractAction;
 import org.openide.awt.DynamicMenuContent;
-import org.openide.util.RequestProcessor;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 
 public class DynamicActionImp extends AbstractAction implements DynamicAction {
 
@@ -54,8 +55,7 @@ public class DynamicActionImp extends AbstractAction implements DynamicAction {
     public void actionPerformed(ActionEvent e) {
         if (action != null) {
             if (isasync) {
-                RequestProcessor rp = new RequestProcessor("dynamicaction");
-                rp.post(action);
+                ActivityScheduler.submit(ACTION, action);
             } else {
                 action.run();
             }
@@ -16,20 +16,38 @@
 package uk.theretiredprogrammer.actions;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import org.openide.filesystems.FileAttributeEvent;
 import org.openide.filesystems.FileChangeListener;
 import org.openide.filesystems.FileEvent;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileRenameEvent;
+import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.actions.NodeActions.FileChangeType;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.WATCH;
 
 public class FileChangeManager {
 
-    private final List<Registration> registrations = new ArrayList<>();
+    private static final long DEBOUNCE = 250; // ms
+    private static final long MAXIMUMDELAY = 2000; // ms
+
+    private final Map<String, List<Registration>> registrations = new ConcurrentHashMap<>();
     private final FileChangeListener directorylistener;
     private final FileObject directory;
+    // the changes to each registered file, waiting to be delivered
+    private final Map<String, List<FileChangeType>> pending = new LinkedHashMap<>();
+    // changes are delivered in order, one batch at a time, and not queued behind builds
+    private final RequestProcessor delivery = new RequestProcessor("a3-filechange", 1);
+    private ScheduledFuture<?> scheduled;
+    private long firstpending;
 
     public FileChangeManager(FileObject directory) {
         this.directory = directory;
@@ -38,17 +56,66 @@ public class FileChangeManager {
     }
 
     public void register(String name, String ext, Consumer<FileChangeType> callback) {
-        registrations.add(new Registration(name, ext, callback));
+        registrations.computeIfAbsent(key(name, ext), k -> new CopyOnWriteArrayList<>())
+                .add(new Registration(name, ext, callback));
+    }
+
+    private static String key(String name, String ext) {
+        return name + "." + ext;
     }
 
     private void handleFileChange(FileObject file, FileChangeType changetype) {
         handleFileChange(file.getParent(), file.getName(), file.getExt(), changetype);
     }
 
+    // changes are coalesced until no further change has been seen for the debounce period (or the
+    // maximum delay has passed) and then delivered away from the filesystem event thread
     private void handleFileChange(FileObject directory, String name, String ext, FileChangeType changetype) {
-        registrations.stream()
-                .filter(r -> r.name.equals(name) && r.ext.equals(ext) && directory.equals(this.directory))
-                .forEach(r -> r.callback.accept(changetype));
+        String key = key(name, ext);
+        if (!directory.equals(this.directory) || !registrations.containsKey(key)) {
+            return;
+        }
+        synchronized (pending) {
+            long now = System.currentTimeMillis();
+            if (pending.isEmpty()) {
+                firstpending = now;
+            }
+            List<FileChangeType> changes = pending.remove(key);
+            pending.put(key, merge(changes == null ? new ArrayList<>() : changes, changetype));
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            long delay = Math.max(0, Math.min(DEBOUNCE, firstpending + MAXIMUMDELAY - now));
+            scheduled = ActivityScheduler.schedule(WATCH, this::deliverChanges, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // repeated changes collapse into one, and into a preceding creation; a deletion replaces a preceding
+    // change - but creations and deletions are always delivered
+    private static List<FileChangeType> merge(List<FileChangeType> changes, FileChangeType changetype) {
+        FileChangeType last = changes.isEmpty() ? null : changes.get(changes.size() - 1);
+        if (changetype == FileChangeType.CHANGED && (last == FileChangeType.CHANGED
+                || last == FileChangeType.CREATED || last == FileChangeType.RENAMEDTO)) {
+            return changes;
+        }
+        if ((changetype == FileChangeType.DELETED || changetype == FileChangeType.RENAMEDFROM) && last == FileChangeType.CHANGED) {
+            changes.remove(changes.size() - 1);
+        }
+        changes.add(changetype);
+        return changes;
+    }
+
+    private void deliverChanges() {
+        Map<String, List<FileChangeType>> changes;
+        synchronized (pending) {
+            changes = new LinkedHashMap<>(pending);
+            pending.clear();
+            scheduled = null;
+        }
+        if (!changes.isEmpty()) {
+            delivery.post(() -> changes.forEach((key, changetypes) -> changetypes.forEach(
+                    changetype -> registrations.get(key).forEach(r -> r.callback.accept(changetype)))));
+        }
     }
 
     private class Registration {
@@ -18,6 +18,7 @@ package uk.theretiredprogrammer.actions;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.swing.Action;
@@ -25,6 +26,7 @@ import org.netbeans.spi.project.ui.support.CommonProjectActions;
 import org.openide.actions.PasteAction;
 import org.openide.filesystems.FileObject;
 import org.openide.util.actions.SystemAction;
+import uk.theretiredprogrammer.activity.Activity;
 
 public class NodeActionsImp implements NodeActions {
 
@@ -32,10 +34,13 @@ public class NodeActionsImp implements NodeActions {
     private final ActionsPropertyFile actionspropertyfile;
     private List<Action> basicactions = new ArrayList<>();
     private final List<DynamicAction> nodeactions = new ArrayList<>();
+    private RunOnChange runonchange;
+    private final BuildTrends buildtrends;
 
     public NodeActionsImp(FileObject filefolder, String actionpropertiesfilename) {
         this.filechangemanager = new FileChangeManager(filefolder);
         this.actionspropertyfile = new ActionsPropertyFile(filefolder, actionpropertiesfilename, filechangemanager);
+        this.buildtrends = new BuildTrends(filefolder);
     }
 
     /**
@@ -79,8 +84,24 @@ public class NodeActionsImp implements NodeActions {
         return this;
     }
 
+    public NodeActions setRunOnChange(Callable<Activity> activityfactory, String message, FileObject... folders) {
+        List<FileObject> roots = new ArrayList<>();
+        for (FileObject folder : folders) {
+            if (folder != null) {
+                roots.add(folder);
+            }
+        }
+        runonchange = new RunOnChange(activityfactory, message, roots);
+        return this;
+    }
+
     public Action[] getAllNodeActions() {
-        return combine(basicactions, combine(selectOnlyEnabled(nodeactions),
+        List<DynamicAction> actions = new ArrayList<>(nodeactions);
+        if (runonchange != null) {
+            actions.add(runonchange.getAction());
+        }
+        actions.add(buildtrends.getAction());
+        return combine(basicactions, combine(selectOnlyEnabled(actions),
                 selectOnlyEnabled(actionspropertyfile.getActions()))).toArray(Action[]::new);
     }
 
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022-23 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.actions;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.openide.filesystems.FileAttributeEvent;
+import org.openide.filesystems.FileChangeListener;
+import org.openide.filesystems.FileEvent;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileRenameEvent;
+import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import uk.theretiredprogrammer.util.UserReporting;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.WATCH;
+
+// re-runs an Activity whenever files below the watched folders change; a change during a run cancels
+// that run, and however many changes arrive meanwhile only one further run follows.
+// Each run has a new Activity, so that runs never share per-run state with each other or with menu actions
+public class RunOnChange {
+
+    private static final long DEBOUNCE = 500; // ms
+    private static final String STARTLABEL = "Run on change";
+    private static final String STOPLABEL = "Stop run on change";
+
+    private final List<FileObject> roots;
+    private final Callable<Activity> activityfactory;
+    private final String message;
+    private final DynamicActionImp toggleaction;
+    private final FileChangeListener listener = new ChangeListener();
+    private boolean watching = false;
+    private Activity running;
+    private boolean pending = false;
+    private ScheduledFuture<?> scheduled;
+
+    public RunOnChange(Callable<Activity> activityfactory, String message, List<FileObject> roots) {
+        this.activityfactory = activityfactory;
+        this.message = message;
+        this.roots = roots;
+        toggleaction = new DynamicActionImp(STARTLABEL).onAction(() -> toggle());
+    }
+
+    public DynamicAction getAction() {
+        return toggleaction;
+    }
+
+    private synchronized void toggle() {
+        if (watching) {
+            roots.forEach(root -> root.removeRecursiveListener(listener));
+            watching = false;
+            pending = false;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            toggleaction.putValue("popupText", STARTLABEL);
+        } else {
+            roots.forEach(root -> root.addRecursiveListener(listener));
+            watching = true;
+            toggleaction.putValue("popupText", STOPLABEL);
+        }
+    }
+
+    private synchronized void changed() {
+        if (watching) {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            scheduled = ActivityScheduler.schedule(WATCH, () -> trigger(), DEBOUNCE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void trigger() {
+        scheduled = null;
+        if (!watching) {
+            return;
+        }
+        if (running != null) {
+            pending = true;
+            running.cancel();
+        } else {
+            startRun();
+        }
+    }
+
+    private void startRun() {
+        try {
+            running = activityfactory.call();
+        } catch (Exception ex) {
+            UserReporting.exceptionWithMessage("Error creating the run on change Activity", ex);
+            return;
+        }
+        running.runAsync(message).whenComplete((result, ex) -> runCompleted());
+    }
+
+    private synchronized void runCompleted() {
+        running = null;
+        if (pending && watching) {
+            pending = false;
+            startRun();
+        }
+    }
+
+    private class ChangeListener implements FileChangeListener {
+
+        @Override
+        public void fileChanged(FileEvent fe) {
+            changed();
+        }
+
+        @Override
+        public void fileFolderCreated(FileEvent fe) {
+            changed();
+        }
+
+        @Override
+        public void fileDataCreated(FileEvent fe) {
+            changed();
+        }
+
+        @Override
+        public void fileDeleted(FileEvent fe) {
+            changed();
+        }
+
+        @Override
+        public void fileRenamed(FileRenameEvent fe) {
+            changed();
+        }
+
+        @Override
+        public void fileAttributeChanged(FileAttributeEvent fe) {
+        }
+    }
+}
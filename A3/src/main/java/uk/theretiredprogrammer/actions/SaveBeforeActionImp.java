@@ -17,8 +17,8 @@ package uk.theretiredprogrammer.actions;
 
 import java.util.Properties;
 import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
 import org.openide.loaders.DataObject;
-import org.openide.loaders.DataObjectNotFoundException;
 import uk.theretiredprogrammer.util.ApplicationException;
 import uk.theretiredprogrammer.util.SaveSelfBeforeAction;
 
@@ -62,17 +62,15 @@ public class SaveBeforeActionImp implements SaveBeforeAction {
         }
     }
 
-    private void saveAllDataObjectsIfModified(FileObject file) throws ApplicationException {
-        try {
-            if (file.isFolder()) {
-                for (FileObject child : file.getChildren()) {
-                    saveAllDataObjectsIfModified(child);
-                }
-            } else {
-                SaveSelfBeforeAction.saveIfModified(DataObject.find(file));
+    // only the DataObjects which the IDE holds as modified need be considered
+    private void saveAllDataObjectsIfModified(FileObject root) throws ApplicationException {
+        if (root == null) {
+            throw new ApplicationException("Unable to save modified files prior to execution - source root is not defined");
+        }
+        for (DataObject dataobject : DataObject.getRegistry().getModifiedSet()) {
+            if (FileUtil.isParentOf(root, dataobject.getPrimaryFile())) {
+                SaveSelfBeforeAction.saveIfModified(dataobject);
             }
-        } catch (DataObjectNotFoundException ex) {
-            throw new ApplicationException("Unable to find a dataobject prior to execution: ", ex);
         }
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.netbeans.api.io.Fold;
+import org.netbeans.api.io.IOProvider;
+import org.netbeans.api.io.InputOutput;
+import uk.theretiredprogrammer.util.ApplicationException;
+import uk.theretiredprogrammer.util.UserReporting;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
+
+public class ActivityBatchImp implements ActivityBatch {
+
+    private final List<BatchItem> items = new ArrayList<>();
+    private String iotabname;
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private Queue<BatchItem> pending;
+    private CountDownLatch completed;
+    private final Set<ActivityImp> running = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+
+    @Override
+    public ActivityBatch needsIOTab(String iotabname) {
+        this.iotabname = iotabname;
+        return this;
+    }
+
+    @Override
+    public ActivityBatch setConcurrency(int concurrency) throws ApplicationException {
+        if (concurrency < 1) {
+            throw new ApplicationException("Bad ActivityBatch concurrency: " + concurrency);
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    @Override
+    public ActivityBatch add(Activity activity, String message) throws ApplicationException {
+        if (!(activity instanceof ActivityImp)) {
+            throw new ApplicationException("Cannot add an Activity from a different implementation to an ActivityBatch");
+        }
+        items.add(new BatchItem((ActivityImp) activity, message));
+        return this;
+    }
+
+    @Override
+    public void run(String message) {
+        long start = System.nanoTime();
+        failed.set(0);
+        cancelled.set(0);
+        InputOutput summaryio = getSummaryIOTab();
+        if (summaryio != null && items.size() > 1) {
+            summaryio.show();
+            summaryio.getOut().println(message);
+        }
+        if (concurrency == 1 || items.size() < 2) {
+            runSequentially();
+        } else {
+            runConcurrently();
+        }
+        if (summaryio != null && items.size() > 1) {
+            UserReporting.flush();
+            summaryio.getOut().println(summary(System.nanoTime() - start));
+        }
+    }
+
+    private InputOutput getSummaryIOTab() {
+        if (iotabname != null) {
+            return IOProvider.getDefault().getIO(iotabname, false);
+        }
+        for (BatchItem item : items) {
+            InputOutput io = item.activity.getIOTab();
+            if (io != null) {
+                return io;
+            }
+        }
+        return null;
+    }
+
+    private void runSequentially() {
+        for (BatchItem item : items) {
+            // a process which exits with an error has run, but has still failed
+            if (!item.activity.runForResult(item.message) || item.activity.getRunExitCode() != 0) {
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    private void runConcurrently() {
+        pending = new ConcurrentLinkedQueue<>(items);
+        completed = new CountDownLatch(items.size());
+        // Activities in a section don't watch their IO Tabs, so watch each distinct tab for the batch
+        Set<InputOutput> watched = Collections.newSetFromMap(new IdentityHashMap<>());
+        Runnable runifclosed = () -> cancelBatch();
+        for (BatchItem item : items) {
+            InputOutput io = item.activity.getIOTab();
+            if (io != null && !watched.contains(io) && IOTabCloseWatch.watch(item.activity.getIOTabName(), io, runifclosed)) {
+                watched.add(io);
+            }
+        }
+        // the calling thread is also a worker, so the batch completes even if the pool is saturated;
+        // helpers run in ACTION, leaving INTERACTIVE to the single short action the user is waiting on
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 1; i < Math.min(concurrency, items.size()); i++) {
+            workers.add(ActivityScheduler.submit(ACTION, () -> runPending()));
+        }
+        runPending();
+        try {
+            completed.await();
+        } catch (InterruptedException ex) {
+            cancelBatch();
+            UserReporting.exception(iotabname, ex);
+        }
+        workers.forEach(worker -> worker.cancel(false));
+        watched.forEach(io -> IOTabCloseWatch.unwatch(io, runifclosed));
+    }
+
+    private void runPending() {
+        BatchItem item;
+        while ((item = pending.poll()) != null) {
+            IOTabSection section = new IOTabSection();
+            running.add(item.activity);
+            boolean ran = item.activity.runInSection(section);
+            running.remove(item.activity);
+            int exitcode = ran ? item.activity.getRunExitCode() : -1;
+            if (exitcode != 0) {
+                failed.incrementAndGet();
+            }
+            writeSection(item.activity.getIOTab(), item.message, section, exitcode, item.activity.getRunSummary());
+            completed.countDown();
+        }
+    }
+
+    // sections are written whole, as each Activity completes, so that concurrent output is not interleaved
+    private synchronized void writeSection(InputOutput io, String message, IOTabSection section, int exitcode, String runsummary) {
+        if (io != null) {
+            UserReporting.flush();
+            io.getOut().println(message);
+            if (!section.isEmpty()) {
+                Fold fold = io.getOut().startFold(true);
+                section.writeTo(io);
+                io.getOut().endFold(fold);
+            }
+            if (exitcode == 0) {
+                io.getOut().println("... done " + runsummary);
+            } else if (exitcode > 0) {
+                io.getOut().println("... failed, exit code " + exitcode + " " + runsummary);
+            } else {
+                io.getOut().println("... failed");
+            }
+        }
+    }
+
+    private void cancelBatch() {
+        while (pending.poll() != null) {
+            cancelled.incrementAndGet();
+            completed.countDown();
+        }
+        running.forEach(activity -> activity.cancel());
+    }
+
+    private String summary(long nanos) {
+        StringBuilder sb = new StringBuilder("... batch done - ");
+        sb.append(items.size()).append(items.size() == 1 ? " activity" : " activities");
+        if (failed.get() > 0) {
+            sb.append(", ").append(failed.get()).append(" failed");
+        }
+        if (cancelled.get() > 0) {
+            sb.append(", ").append(cancelled.get()).append(" cancelled");
+        }
+        sb.append(String.format(" in %.1f s", nanos / 1e9));
+        return sb.toString();
+    }
+
+    private static class BatchItem {
+
+        public final ActivityImp activity;
+        public final String message;
+
+        public BatchItem(ActivityImp activity, String message) {
+            this.activity = activity;
+            this.message = message;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package uk.theretiredprogrammer.activity;
 
+import java.util.concurrent.CompletableFuture;
 import org.netbeans.api.io.InputOutput;
 
 public interface ActivityExecutor {
@@ -22,7 +23,7 @@ public interface ActivityExecutor {
     
     public static enum DataTransferStyle {
         STREAM_TRANSFER, STREAM_OR_CHARACTER_TRANSFER,
-        CHARACTER_TRANSFER_BY_CHAR, CHARACTER_TRANSFER_BY_LINE
+        CHARACTER_TRANSFER_BY_CHAR, CHARACTER_TRANSFER_BY_BLOCK, CHARACTER_TRANSFER_BY_LINE
     }
 
     public void open(ConnectionSTDIN stdin, ConnectionSTDOUT stdout, ConnectionSTDERR stderr, InputOutput io) throws Exception;
@@ -31,7 +32,9 @@ public interface ActivityExecutor {
 
     public void run() throws Exception;
 
-    public void waitUntilCompletion() throws Exception;
+    public CompletableFuture<Void> getCompletion();
+
+    public int getExitCode();
 
     public void close() throws Exception;
 
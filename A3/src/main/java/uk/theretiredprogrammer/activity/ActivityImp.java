@@ -20,8 +20,20 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import org.netbeans.api.io.IOProvider;
 import org.netbeans.api.io.InputOutput;
@@ -29,6 +41,9 @@ import org.openide.filesystems.FileObject;
 import org.openide.loaders.DataObject;
 import uk.theretiredprogrammer.util.ApplicationException;
 import uk.theretiredprogrammer.util.UserReporting;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.COMPLETION;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.PIPELINE;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.WATCH;
 
 public class ActivityImp implements Activity {
 
@@ -42,6 +57,29 @@ public class ActivityImp implements Activity {
     private DataTask taskSTDOUT;
     private final ConnectionSTDERR connectionSTDERR = new ConnectionSTDERR();
     private DataTask taskSTDERR;
+    private ActivityImp upstream;
+    private ActivityImp downstream;
+    private ActivityPipe downstreampipe;
+    private Future<?> downstreamrun;
+    private IOTabSection section;
+    private Runnable closewatch; // set while the IO Tab is watched
+    private ActivityRunEvent runevent;
+    private long runstart;
+    private String runsummary = "";
+    private int runexitcode;
+    private String runlabel;
+    private List<File> cacheinputs;
+    private List<File> cacheoutputs;
+    private BuildCache buildcache;
+    private ActivityScheduler.Priority priority = ActivityScheduler.Priority.BUILD;
+    private Duration timeout;
+    private ScheduledFuture<?> timeoutwatch;
+    private volatile boolean cancelled;
+    private volatile boolean active;
+    private volatile TimeoutException timedout; // set if the run timed out
+
+    private static final int PIPESIZE = 65536;
+    private static final long PERSISTENTIDLETIMEOUT = 300; // seconds
    
     @Override
     public Activity needsIOTab(String iotabname) {
@@ -55,12 +93,43 @@ public class ActivityImp implements Activity {
         return this;
     }
 
+    @Override
+    public Activity ioTabLimit(long limit) throws ApplicationException {
+        if (limit < 0) {
+            throw new ApplicationException("Bad IO Tab limit: " + limit);
+        }
+        connectionSTDOUT.setIOTabLimit(limit);
+        connectionSTDERR.setIOTabLimit(limit);
+        return this;
+    }
+
     @Override
     public Activity setExternalProcess(final String command, final String args, FileObject dir) {
         activityexecutor = new ProgramActivityExecutor(command, args, dir);
         return this;
     }
 
+    @Override
+    public Activity setPersistentProcess(final String command, final String args, final String request, FileObject dir) {
+        return setPersistentProcess(command, args, request, dir, PERSISTENTIDLETIMEOUT);
+    }
+
+    @Override
+    public Activity setPersistentProcess(final String command, final String args, final String request, FileObject dir, long idletimeout) {
+        activityexecutor = new PersistentProcessActivityExecutor(command, args, request, dir, idletimeout);
+        return this;
+    }
+
+    @Override
+    public Activity cacheKey(List<File> inputs, List<File> outputs) throws ApplicationException {
+        if (outputs.isEmpty()) {
+            throw new ApplicationException("Cannot cache an Activity which declares no outputs");
+        }
+        cacheinputs = List.copyOf(inputs);
+        cacheoutputs = List.copyOf(outputs);
+        return this;
+    }
+
     @Override
     public Activity setDevice(DeviceDescriptor dd) {
         activityexecutor = new DeviceActivityExecutor(dd);
@@ -81,74 +150,393 @@ public class ActivityImp implements Activity {
 
     @Override
     public void run(String message) {
+        runForResult(message);
+    }
+
+    @Override
+    public void run() {
+        runForResult(null);
+    }
+
+    boolean runInSection(IOTabSection section) {
+        this.section = section;
+        try {
+            return runForResult(null);
+        } finally {
+            this.section = null;
+        }
+    }
+
+    // a run which has not yet started is cancelled when it starts
+    @Override
+    public void cancel() {
+        cancelPipeline();
+    }
+
+    String getIOTabName() {
+        return iotabname;
+    }
+
+    InputOutput getIOTab() {
+        return iotabname == null ? null : IOProvider.getDefault().getIO(iotabname, false);
+    }
+
+    @Override
+    public Activity timeout(Duration timeout) throws ApplicationException {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new ApplicationException("Bad Activity timeout: " + timeout);
+        }
+        this.timeout = timeout;
+        return this;
+    }
+
+    @Override
+    public Activity priority(ActivityScheduler.Priority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<ActivityResult> runAsync(String message) {
+        CompletableFuture<ActivityResult> asyncresult = new CompletableFuture<>();
+        resetCancel();
+        ActivityScheduler.submit(priority, () -> runForResult(message, asyncresult));
+        return asyncresult;
+    }
+
+    @Override
+    public CompletableFuture<ActivityResult> runAsync() {
+        return runAsync(null);
+    }
+
+    boolean runForResult(String message) {
+        resetCancel();
+        return runForResult(message, null);
+    }
+
+    // a new run clears any earlier cancel of the stages it starts
+    private void resetCancel() {
+        for (ActivityImp stage = this; stage != null; stage = stage.downstream) {
+            stage.cancelled = false;
+        }
+    }
+
+    // with an asyncresult, the thread is released once the Activity is started, and the
+    // asyncresult is completed when the Activity has completed
+    private boolean runForResult(String message, CompletableFuture<ActivityResult> asyncresult) {
+        runstart = System.nanoTime();
+        runlabel = message != null ? message : iotabname;
+        runexitcode = -1;
+        timedout = null;
+        Exception failure;
+        if (cancelled) {
+            if (asyncresult != null) {
+                asyncresult.complete(new ActivityResult(-1, Duration.ZERO, 0, 0, 0, new CancellationException("Activity cancelled before it started")));
+            }
+            return false;
+        }
         try {
             if (iotabname != null) {
+                // reports still queued from earlier work are written before the tab is reset
+                UserReporting.flush();
                 io = IOProvider.getDefault().getIO(iotabname, false);
-                io.show();
-                if (iotabreset) {
-                    io.reset();
+                if (section == null) {
+                    io.show();
+                    if (iotabreset) {
+                        io.reset();
+                    }
                 }
-                io.getOut().println(message);
-                runActivity();
-                io.getOut().println("... done");
-
+            }
+            if (isCached()) {
+                if (iotabname != null && message != null) {
+                    getIOTabOut().println(message);
+                    getIOTabOut().println("... up to date");
+                }
+                runsummary = "(up to date)";
+                runexitcode = 0;
+                if (asyncresult != null) {
+                    asyncresult.complete(new ActivityResult(0, Duration.ofNanos(System.nanoTime() - runstart), 0, 0, 0, null));
+                }
+                return true;
+            }
+            if (iotabname != null && message != null) {
+                getIOTabOut().println(message);
+                return runActivity("... done", asyncresult);
             } else {
-                runActivity();
+                return runActivity(null, asyncresult);
             }
         } catch (ApplicationException ex) {
             UserReporting.exceptionWithMessage(iotabname, "Error when running an Activity", ex);
+            failure = ex;
         } catch (FileNotFoundException ex) {
             UserReporting.exceptionWithMessage(iotabname, "Error - missing file when running an Activity", ex);
+            failure = ex;
         } catch (IOException ex) {
             UserReporting.exceptionWithMessage(iotabname, "Error - processing file when running an Activity", ex);
+            failure = ex;
+        } catch (CancellationException ex) {
+            UserReporting.warning(iotabname, ex.getMessage());
+            failure = ex;
         } catch (Exception ex) {
             UserReporting.exceptionWithMessage(iotabname, "Error when running an Activity", ex);
+            failure = ex;
+        }
+        if (asyncresult != null) {
+            asyncresult.complete(new ActivityResult(-1, Duration.ofNanos(System.nanoTime() - runstart), 0, 0, 0, failure));
         }
+        return false;
     }
 
-    @Override
-    public void run() {
+    private boolean isCached() throws ApplicationException, IOException {
+        buildcache = null;
+        if (cacheinputs == null) {
+            return false;
+        }
+        if (!(activityexecutor instanceof CommandActivityExecutor)) {
+            throw new ApplicationException("A cacheKey can only be used with an External or Persistent Process");
+        }
+        CommandActivityExecutor program = (CommandActivityExecutor) activityexecutor;
+        buildcache = new BuildCache(program.getCommandLine(), program.getDirectory(), cacheinputs, cacheoutputs);
+        return buildcache.isUpToDate();
+    }
+
+    private PrintWriter getIOTabOut() {
+        return section != null ? section.getOut() : io.getOut();
+    }
+
+    // returns false if the run failed - an asynchronous run reports its failure through the asyncresult
+    private boolean runActivity(String donemessage, CompletableFuture<ActivityResult> asyncresult) throws ApplicationException, IOException, Exception {
+        runevent = new ActivityRunEvent(iotabname, activityexecutor.getClass().getSimpleName());
+        runevent.begin();
         try {
-            if (iotabname != null) {
-                io = IOProvider.getDefault().getIO(iotabname, false);
-                io.show();
-                if (iotabreset) {
-                    io.reset();
+            if (section != null) {
+                connectionSTDOUT.redirectIOTab(section.getOut(), section.getErr());
+                connectionSTDERR.redirectIOTab(section.getOut(), section.getErr());
+            }
+            if (activityexecutor instanceof ProgramActivityExecutor) {
+                ProgramActivityExecutor program = (ProgramActivityExecutor) activityexecutor;
+                program.setGoverned(upstream == null);
+                program.resetCancel();
+                if (io != null) {
+                    program.setQueuedReporter(message -> {
+                        UserReporting.flush();
+                        getIOTabOut().println(message);
+                    });
                 }
             }
-            runActivity();
-        } catch (ApplicationException ex) {
-            UserReporting.exceptionWithMessage(iotabname, "Error when running an Activity", ex);
-        } catch (FileNotFoundException ex) {
-            UserReporting.exceptionWithMessage(iotabname, "Error - missing file when running an Activity", ex);
-        } catch (IOException ex) {
-            UserReporting.exceptionWithMessage(iotabname, "Error - processing file when running an Activity", ex);
+            taskSTDIN = null;
+            active = true;
+            // watched from before the open, so that closing the IO Tab or a timeout also ends a wait for a process slot;
+            // in a section, the batch watches the IO Tab on behalf of all its Activities
+            if (io != null && section == null) {
+                Runnable runifclosed = () -> cancelPipeline();
+                closewatch = IOTabCloseWatch.watch(iotabname, io, runifclosed) ? runifclosed : null;
+            }
+            if (timeout != null) {
+                timeoutwatch = ActivityScheduler.schedule(WATCH, () -> timedOut(), timeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            activityexecutor.open(connectionSTDIN, connectionSTDOUT, connectionSTDERR, io);
+            taskSTDERR = connectionSTDERR.createTask(iotabname, io);
+            taskSTDOUT = connectionSTDOUT.createTask(iotabname, io);
+            taskSTDIN = connectionSTDIN.createTask(iotabname, io);
+            // piped stages run concurrently, each draining its upstream pipe - a stage which is
+            // cancelled before it starts stays cancelled
+            downstreamrun = downstream == null ? null : ActivityScheduler.submit(PIPELINE, () -> downstream.runForResult(null, null));
+            activityexecutor.run();
         } catch (Exception ex) {
-            UserReporting.exceptionWithMessage(iotabname, "Error when running an Activity", ex);
+            cancelTimeout();
+            if (closewatch != null) {
+                IOTabCloseWatch.unwatch(io, closewatch);
+                closewatch = null;
+            }
+            if (upstream != null || downstream != null) {
+                cancelPipeline();
+            }
+            active = false;
+            runevent.complete(false, 0, 0, 0);
+            throw ex;
+        }
+        CompletableFuture<Void> completion = activityexecutor.getCompletion();
+        if (activityexecutor.getDeviceDescriptor() != null || asyncresult != null) {
+            // a device runs until closed, cancelled or EOF - don't hold a thread waiting for it
+            completion.whenComplete((v, ex) -> ActivityScheduler.submit(COMPLETION, () -> {
+                Exception failure = ex == null ? null : asException(ex);
+                if (failure != null) {
+                    UserReporting.exception(iotabname, failure);
+                }
+                closeActivity(donemessage, asyncresult, failure);
+            }));
+            return true;
+        }
+        Exception failure = null;
+        try {
+            completion.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failure = ex;
+        } catch (ExecutionException ex) {
+            failure = asException(ex.getCause());
         }
+        if (failure != null) {
+            UserReporting.exception(iotabname, failure);
+        }
+        closeTasksAndProcess(donemessage, null, failure);
+        return failure == null && timedout == null;
     }
 
-    private void runActivity() throws ApplicationException, IOException, Exception {
-        activityexecutor.open(connectionSTDIN, connectionSTDOUT, connectionSTDERR, io);
-        taskSTDERR = connectionSTDERR.createTask(iotabname, io);
-        taskSTDOUT = connectionSTDOUT.createTask(iotabname, io);
-        taskSTDIN = connectionSTDIN.createTask(iotabname, io);
-        if (io != null) {
-            IOTabCloseWatch.watch(iotabname, io, () -> cancelTasksAndProcess());
-        }
-        activityexecutor.run();
+    private static Exception asException(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof Exception ? (Exception) cause : new ExecutionException(cause);
+    }
+
+    private void closeActivity(String donemessage, CompletableFuture<ActivityResult> asyncresult, Exception failure) {
         try {
-            activityexecutor.waitUntilCompletion();
+            closeTasksAndProcess(donemessage, asyncresult, failure);
         } catch (Exception ex) {
-            UserReporting.exception(iotabname, ex);
+            UserReporting.exceptionWithMessage(iotabname, "Error when closing an Activity", ex);
+            if (asyncresult != null) {
+                asyncresult.complete(new ActivityResult(-1, Duration.ofNanos(System.nanoTime() - runstart), 0, 0, 0, ex));
+            }
+        }
+    }
+
+    private void timedOut() {
+        String message = String.format("Activity timed out after %.1f s", timeout.toMillis() / 1e3);
+        UserReporting.error(iotabname, message);
+        timedout = new TimeoutException(message);
+        cancelPipeline();
+    }
+
+    private void cancelTimeout() {
+        if (timeoutwatch != null) {
+            timeoutwatch.cancel(false);
+            timeoutwatch = null;
+        }
+    }
+
+    // a failed run is completed with an exit code of -1 and the failure as its cause; a run which
+    // timed out has failed, whatever its process's exit code
+    private void closeTasksAndProcess(String donemessage, CompletableFuture<ActivityResult> asyncresult, Exception failure) throws Exception {
+        active = false;
+        cancelTimeout();
+        if (failure == null && timedout != null) {
+            failure = timedout;
+        }
+        if (closewatch != null) {
+            IOTabCloseWatch.unwatch(io, closewatch);
+            closewatch = null;
         }
         taskSTDIN.close();
         taskSTDOUT.close();
         taskSTDERR.close();
         activityexecutor.close();
+        if (downstreampipe != null) {
+            downstreampipe.closeOutput();
+        }
+        if (downstreamrun != null) {
+            try {
+                downstreamrun.get();
+            } catch (CancellationException ex) {
+                // pipeline cancelled before the downstream stage started
+            }
+        }
+        int exitcode = failure != null ? -1 : activityexecutor.getExitCode();
+        runexitcode = exitcode;
+        if (buildcache != null && exitcode == 0) {
+            buildcache.record();
+        }
+        runsummary = summarise(System.nanoTime() - runstart);
+        recordHistory(System.nanoTime() - runstart, exitcode);
+        runevent.complete(failure == null, taskSTDIN.getTransferred(), taskSTDOUT.getTransferred(), taskSTDERR.getTransferred());
+        // reports made during the run come before the run's summary, and before any later output to the tab
+        UserReporting.flush();
+        if (donemessage != null) {
+            getIOTabOut().println((exitcode == 0 ? donemessage : "... failed, exit code " + exitcode) + " " + runsummary);
+        }
+        if (asyncresult != null) {
+            asyncresult.complete(new ActivityResult(exitcode, Duration.ofNanos(System.nanoTime() - runstart),
+                    taskSTDIN.getTransferred(), taskSTDOUT.getTransferred(), taskSTDERR.getTransferred(), failure));
+        }
+    }
+
+    String getRunSummary() {
+        return runsummary;
+    }
+
+    // the exit code of the last run - -1 if it failed to run
+    int getRunExitCode() {
+        return runexitcode;
+    }
+
+    // only External and Persistent Processes are recorded, as they are the runs which can be compared over time
+    private void recordHistory(long nanos, int exitcode) {
+        if (!(activityexecutor instanceof CommandActivityExecutor)) {
+            return;
+        }
+        CommandActivityExecutor program = (CommandActivityExecutor) activityexecutor;
+        FileObject dir = program.getDirectory();
+        if (dir != null) {
+            RunHistory.record(dir, runlabel, program.getCommandLine(), TimeUnit.NANOSECONDS.toMillis(nanos), exitcode,
+                    taskSTDIN.getTransferred(), taskSTDOUT.getTransferred(), taskSTDERR.getTransferred());
+        }
+    }
+
+    private String summarise(long nanos) {
+        StringBuilder sb = new StringBuilder(String.format("in %.1f s", nanos / 1e9));
+        if (taskSTDOUT.getTransferred() > 0) {
+            sb.append(", ").append(formatSize(taskSTDOUT.getTransferred())).append(" stdout");
+        }
+        if (taskSTDERR.getTransferred() > 0) {
+            sb.append(", ").append(formatSize(taskSTDERR.getTransferred())).append(" stderr");
+        }
+        if (activityexecutor instanceof ProgramActivityExecutor) {
+            ProcessResources resources = ((ProgramActivityExecutor) activityexecutor).getResources();
+            if (resources != null && resources.getCPUTime() >= 0) {
+                sb.append(String.format(", cpu %.1f s", resources.getCPUTime() / 1e3));
+            }
+            if (resources != null && resources.getPeakRSS() > 0) {
+                sb.append(", peak ").append(formatSize(resources.getPeakRSS()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String formatSize(long size) {
+        if (size < 1024) {
+            return size + " bytes";
+        }
+        if (size < 1024 * 1024) {
+            return String.format("%.1f KB", size / 1024.0);
+        }
+        return String.format("%.1f MB", size / (1024.0 * 1024.0));
+    }
+
+    private void cancelPipeline() {
+        ActivityImp stage = this;
+        while (stage.upstream != null) {
+            stage = stage.upstream;
+        }
+        while (stage != null) {
+            stage.cancelled = true;
+            if (stage.downstreampipe != null) {
+                stage.downstreampipe.cancel();
+            }
+            stage.cancelTasksAndProcess();
+            stage = stage.downstream;
+        }
     }
 
     private void cancelTasksAndProcess() {
+        if (!active) {
+            return; // not yet started, or already completed
+        }
+        if (taskSTDIN == null) {
+            // still opening - an External Process may be waiting for a process slot
+            if (activityexecutor instanceof ProgramActivityExecutor) {
+                ((ProgramActivityExecutor) activityexecutor).cancel();
+            }
+            return;
+        }
         taskSTDIN.cancel();
         taskSTDOUT.cancel();
         taskSTDERR.cancel();
@@ -159,6 +547,24 @@ public class ActivityImp implements Activity {
         }
     }
 
+    // pipeline configuration
+    @Override
+    public Activity pipeTo(Activity next) throws ApplicationException {
+        if (!(next instanceof ActivityImp)) {
+            throw new ApplicationException("Cannot pipe to an Activity from a different implementation");
+        }
+        ActivityImp nextstage = (ActivityImp) next;
+        if (downstream != null || nextstage.upstream != null || nextstage == this) {
+            throw new ApplicationException("Cannot pipe - an Activity can only have one upstream and one downstream stage");
+        }
+        downstreampipe = new ActivityPipe(PIPESIZE);
+        connectionSTDOUT.toFile(downstreampipe.getOutputStream());
+        nextstage.connectionSTDIN.fromFile(downstreampipe.getInputStream());
+        downstream = nextstage;
+        nextstage.upstream = this;
+        return this;
+    }
+
     // STDIN configuration methods
     @Override
     public Activity stdinFromEmpty() throws ApplicationException {
@@ -172,6 +578,24 @@ public class ActivityImp implements Activity {
         return this;
     }
 
+    @Override
+    public Activity stdinBuffer(int buffersize, boolean direct) throws ApplicationException {
+        if (buffersize <= 0) {
+            throw new ApplicationException("Bad STDIN buffer size: " + buffersize);
+        }
+        connectionSTDIN.setBuffer(buffersize, direct);
+        return this;
+    }
+
+    @Override
+    public Activity stdinCharset(Charset charset) throws ApplicationException {
+        if (charset == null) {
+            throw new ApplicationException("STDIN charset must not be null");
+        }
+        connectionSTDIN.setCharset(charset);
+        return this;
+    }
+
     @Override
     public Activity stdinFromFile(FileObject fileobject) throws ApplicationException {
         connectionSTDIN.fromFile(fileobject);
@@ -215,6 +639,39 @@ public class ActivityImp implements Activity {
         return this;
     }
 
+    @Override
+    public Activity onStdoutLine(Consumer<CharSequence> callback) throws ApplicationException {
+        if (callback == null) {
+            throw new ApplicationException("Null STDOUT line callback");
+        }
+        connectionSTDOUT.toLineCallback(callback);
+        return this;
+    }
+
+    @Override
+    public Activity stdoutTo(OutputSink... sinks) throws ApplicationException {
+        connectionSTDOUT.toSinks(checkSinks("STDOUT", sinks));
+        return this;
+    }
+
+    @Override
+    public Activity stdoutBuffer(int buffersize, boolean direct) throws ApplicationException {
+        if (buffersize <= 0) {
+            throw new ApplicationException("Bad STDOUT buffer size: " + buffersize);
+        }
+        connectionSTDOUT.setBuffer(buffersize, direct);
+        return this;
+    }
+
+    @Override
+    public Activity stdoutCharset(Charset charset) throws ApplicationException {
+        if (charset == null) {
+            throw new ApplicationException("STDOUT charset must not be null");
+        }
+        connectionSTDOUT.setCharset(charset);
+        return this;
+    }
+
     @Override
     public Activity stdoutToIOSTDERR() throws ApplicationException {
         connectionSTDOUT.toIOSTDERR();
@@ -258,12 +715,39 @@ public class ActivityImp implements Activity {
         return this;
     }
 
+    @Override
+    public Activity stderrCharset(Charset charset) throws ApplicationException {
+        if (charset == null) {
+            throw new ApplicationException("STDERR charset must not be null");
+        }
+        connectionSTDERR.setCharset(charset);
+        return this;
+    }
+
     @Override
     public Activity stderrToIOSTDOUT() throws ApplicationException {
         connectionSTDERR.toIOSTDOUT();
         return this;
     }
 
+    @Override
+    public Activity stderrTo(OutputSink... sinks) throws ApplicationException {
+        connectionSTDERR.toSinks(checkSinks("STDERR", sinks));
+        return this;
+    }
+
+    private List<OutputSink> checkSinks(String name, OutputSink[] sinks) throws ApplicationException {
+        if (sinks.length == 0) {
+            throw new ApplicationException("No output sinks given for " + name);
+        }
+        for (OutputSink sink : sinks) {
+            if (sink == null) {
+                throw new ApplicationException("Null output sink given for " + name);
+            }
+        }
+        return List.of(sinks);
+    }
+
     @Override
     public Activity stderrToIOSTDERR() throws ApplicationException {
         connectionSTDERR.toIOSTDERR();
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+public class ActivityPipe {
+
+    private final byte[] buffer;
+    private int readpos = 0;
+    private int count = 0;
+    private boolean outputclosed = false;
+    private boolean inputclosed = false;
+    private boolean cancelled = false;
+    private final InputStream input = new PipeInputStream();
+    private final OutputStream output = new PipeOutputStream();
+
+    public ActivityPipe(int buffersize) {
+        buffer = new byte[buffersize];
+    }
+
+    public InputStream getInputStream() {
+        return input;
+    }
+
+    public OutputStream getOutputStream() {
+        return output;
+    }
+
+    public synchronized void closeOutput() {
+        outputclosed = true;
+        notifyAll();
+    }
+
+    public synchronized void closeInput() {
+        inputclosed = true;
+        notifyAll();
+    }
+
+    public synchronized void cancel() {
+        cancelled = true;
+        notifyAll();
+    }
+
+    // blocks while the pipe is full, so a fast writer is held to the pace of the reader
+    private synchronized void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            while (count == buffer.length && !(cancelled || inputclosed || outputclosed)) {
+                waitForChange();
+            }
+            if (cancelled) {
+                throw new IOException("Pipe cancelled");
+            }
+            if (inputclosed) {
+                throw new IOException("Pipe closed by reader");
+            }
+            if (outputclosed) {
+                throw new IOException("Pipe closed");
+            }
+            int writepos = (readpos + count) % buffer.length;
+            int n = Math.min(len, Math.min(buffer.length - count, buffer.length - writepos));
+            System.arraycopy(b, off, buffer, writepos, n);
+            count += n;
+            off += n;
+            len -= n;
+            notifyAll();
+        }
+    }
+
+    private synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (count == 0 && !(cancelled || inputclosed || outputclosed)) {
+            waitForChange();
+        }
+        if (cancelled) {
+            throw new IOException("Pipe cancelled");
+        }
+        if (inputclosed) {
+            throw new IOException("Pipe closed");
+        }
+        if (count == 0) {
+            return -1;
+        }
+        int n = Math.min(len, Math.min(count, buffer.length - readpos));
+        System.arraycopy(buffer, readpos, b, off, n);
+        readpos = (readpos + n) % buffer.length;
+        count -= n;
+        notifyAll();
+        return n;
+    }
+
+    private synchronized int available() {
+        return count;
+    }
+
+    private void waitForChange() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting on pipe");
+        }
+    }
+
+    private class PipeInputStream extends InputStream {
+
+        private final byte[] single = new byte[1]; // reused by read()
+
+        @Override
+        public int read() throws IOException {
+            return ActivityPipe.this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return ActivityPipe.this.read(b, off, len);
+        }
+
+        @Override
+        public int available() {
+            return ActivityPipe.this.available();
+        }
+
+        @Override
+        public void close() {
+            closeInput();
+        }
+    }
+
+    private class PipeOutputStream extends OutputStream {
+
+        private final byte[] single = new byte[1]; // reused by write(int)
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            ActivityPipe.this.write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ActivityPipe.this.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closeOutput();
+        }
+    }
+}
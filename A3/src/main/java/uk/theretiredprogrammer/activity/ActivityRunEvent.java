@@ -0,0 +1,69 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("uk.theretiredprogrammer.activity.ActivityRun")
+@Label("Activity Run")
+@Description("An Activity, from start to completion")
+@Category({"Activities and Actions"})
+@StackTrace(false)
+public class ActivityRunEvent extends Event {
+
+    @Label("IO Tab")
+    public String iotabname;
+
+    @Label("Executor")
+    public String executor;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    @Label("STDIN")
+    @DataAmount
+    public long stdin;
+
+    @Label("STDOUT")
+    @DataAmount
+    public long stdout;
+
+    @Label("STDERR")
+    @DataAmount
+    public long stderr;
+
+    public ActivityRunEvent(String iotabname, String executor) {
+        this.iotabname = iotabname;
+        this.executor = executor;
+    }
+
+    public void complete(boolean succeeded, long stdin, long stdout, long stderr) {
+        end();
+        if (shouldCommit()) {
+            this.succeeded = succeeded;
+            this.stdin = stdin;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import org.netbeans.api.project.FileOwnerQuery;
+import org.netbeans.api.project.Project;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+
+public class BuildCache {
+
+    private static final String CACHEFOLDER = ".a3cache";
+
+    private final String identity;
+    private final List<File> inputs;
+    private final List<File> outputs;
+    private final File entryfile;
+    private final Properties previous = new Properties();
+    private final Properties current = new Properties();
+
+    // identity is everything other than the inputs that determines the outputs - the command, arguments and directory
+    public BuildCache(String identity, FileObject dir, List<File> inputs, List<File> outputs) throws IOException {
+        this.identity = identity;
+        this.inputs = inputs;
+        this.outputs = outputs;
+        StringBuilder entrykey = new StringBuilder(identity);
+        outputs.forEach(output -> entrykey.append('\0').append(output.getAbsolutePath()));
+        entryfile = new File(getCacheFolder(dir), hash(entrykey.toString()) + ".properties");
+        if (entryfile.isFile()) {
+            try (InputStream in = new FileInputStream(entryfile)) {
+                previous.load(in);
+            }
+        }
+    }
+
+    public boolean isUpToDate() throws IOException {
+        current.clear();
+        MessageDigest fingerprint = newDigest();
+        fingerprint.update(identity.getBytes(StandardCharsets.UTF_8));
+        for (File input : inputs) {
+            fingerprint.update(input.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+            fingerprint.update(inputHash(input).getBytes(StandardCharsets.UTF_8));
+        }
+        current.setProperty("fingerprint", HexFormat.of().formatHex(fingerprint.digest()));
+        if (!current.getProperty("fingerprint").equals(previous.getProperty("fingerprint"))) {
+            return false;
+        }
+        for (File output : outputs) {
+            if (!output.isFile() || !outputStatus(output).equals(previous.getProperty("output." + output.getAbsolutePath()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void record() throws IOException {
+        for (File output : outputs) {
+            if (!output.isFile()) {
+                return; // the run did not create all its outputs - nothing to cache
+            }
+            current.setProperty("output." + output.getAbsolutePath(), outputStatus(output));
+        }
+        entryfile.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(entryfile)) {
+            current.store(out, "A3 build cache entry");
+        }
+        previous.clear();
+        previous.putAll(current);
+    }
+
+    // content hashes are reused while an input's size and modification time are unchanged
+    private String inputHash(File input) throws IOException {
+        if (!input.isFile()) {
+            return "missing";
+        }
+        String status = input.length() + ":" + input.lastModified() + ":";
+        String key = "input." + input.getAbsolutePath();
+        String recorded = previous.getProperty(key);
+        String contenthash;
+        if (recorded != null && recorded.startsWith(status)) {
+            contenthash = recorded.substring(status.length());
+        } else {
+            MessageDigest digest = newDigest();
+            try (InputStream in = new FileInputStream(input)) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, n);
+                }
+            }
+            contenthash = HexFormat.of().formatHex(digest.digest());
+        }
+        current.setProperty(key, status + contenthash);
+        return contenthash;
+    }
+
+    private String outputStatus(File output) {
+        return output.length() + ":" + output.lastModified();
+    }
+
+    private static File getCacheFolder(FileObject dir) {
+        Project project = FileOwnerQuery.getOwner(dir);
+        FileObject root = project != null ? project.getProjectDirectory() : dir;
+        return new File(FileUtil.toFile(root), CACHEFOLDER);
+    }
+
+    private static String hash(String text) throws IOException {
+        return HexFormat.of().formatHex(newDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException("SHA-256 digest not available", ex);
+        }
+    }
+}
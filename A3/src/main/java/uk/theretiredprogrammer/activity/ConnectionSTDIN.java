@@ -20,9 +20,11 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.Channels;
 import java.util.function.Supplier;
 import org.netbeans.api.io.InputOutput;
 import uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle;
+import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.CHARACTER_TRANSFER_BY_BLOCK;
 import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.CHARACTER_TRANSFER_BY_CHAR;
 import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.CHARACTER_TRANSFER_BY_LINE;
 import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.STREAM_OR_CHARACTER_TRANSFER;
@@ -67,11 +69,14 @@ public class ConnectionSTDIN extends InputIO {
             if (datatransferstyle == CHARACTER_TRANSFER_BY_CHAR && canProvideReader()) {
                 return new DataTaskByCharSTDIN("stdin", encoding, getReader(io), streamsupplier.get(), iotabname);
             }
+            if (datatransferstyle == CHARACTER_TRANSFER_BY_BLOCK && canProvideReader()) {
+                return new DataTaskByBlockSTDIN("stdin", encoding, getReader(io), streamsupplier.get(), iotabname);
+            }
             if (datatransferstyle == STREAM_TRANSFER && canProvideStream()) {
-                return new DataTaskByStream("stdin", getInputStream(), streamsupplier.get(), iotabname);
+                return new DataTaskByStream("stdin", getReadableChannel(), Channels.newChannel(streamsupplier.get()), getBufferSize(), isDirectBuffer(), iotabname);
             }
             if (datatransferstyle == STREAM_OR_CHARACTER_TRANSFER && canProvideStream()) {
-                return new DataTaskByStream("stdin", getInputStream(), streamsupplier.get(), iotabname);
+                return new DataTaskByStream("stdin", getReadableChannel(), Channels.newChannel(streamsupplier.get()), getBufferSize(), isDirectBuffer(), iotabname);
             }
             if (datatransferstyle == STREAM_OR_CHARACTER_TRANSFER && canProvideReader()) {
                 return new DataTaskByLine("stdin", getReader(io), writersupplier.get(), iotabname);
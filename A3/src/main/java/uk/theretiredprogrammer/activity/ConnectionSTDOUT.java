@@ -17,12 +17,16 @@ package uk.theretiredprogrammer.activity;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
 import java.util.function.Supplier;
 import org.netbeans.api.io.InputOutput;
 import uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle;
+import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.CHARACTER_TRANSFER_BY_BLOCK;
 import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.CHARACTER_TRANSFER_BY_CHAR;
 import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.CHARACTER_TRANSFER_BY_LINE;
 import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.STREAM_OR_CHARACTER_TRANSFER;
@@ -36,12 +40,14 @@ public class ConnectionSTDOUT extends OutputIO {
     private DataTransferStyle datatransferstyle;
     private boolean isCoreIOconfigured = false;
     private String encoding = "US-ASCII";
+    private boolean isdevice = false;
 
     public void set(DataTransferStyle datatransferstyle, Supplier<InputStream> streamsupplier, Supplier<Reader> readersupplier) {
         this.readersupplier = readersupplier;
         this.streamsupplier = streamsupplier;
         this.datatransferstyle = datatransferstyle;
         isCoreIOconfigured = true;
+        isdevice = false;
     }
 
     public void set(DataTransferStyle datatransferstyle, Supplier<InputStream> streamsupplier) {
@@ -49,6 +55,7 @@ public class ConnectionSTDOUT extends OutputIO {
         this.streamsupplier = streamsupplier;
         this.datatransferstyle = datatransferstyle;
         isCoreIOconfigured = true;
+        isdevice = false;
     }
 
     public void set(DataTransferStyle datatransferstyle, Supplier<InputStream> streamsupplier, String encoding) {
@@ -57,21 +64,30 @@ public class ConnectionSTDOUT extends OutputIO {
         this.datatransferstyle = datatransferstyle;
         isCoreIOconfigured = true;
         this.encoding = encoding;
+        isdevice = true;
     }
 
     public DataTask createTask(String iotabname, InputOutput io) throws ApplicationException, IOException {
         if (isCoreIOconfigured && isIOConfigured()) {
+            if (isLineCallback()) {
+                Reader reader = readersupplier != null ? readersupplier.get() : new InputStreamReader(streamsupplier.get(),
+                        isdevice ? Charset.forName(encoding) : getCharset());
+                return new DataTaskByLineCallback("stdout", reader, getLineCallbackWriter(), getBufferSize(), iotabname);
+            }
             if (datatransferstyle == CHARACTER_TRANSFER_BY_LINE && canProvideWriter()) {
                 return new DataTaskByLine("stdout", readersupplier.get(), getWriter(io), iotabname);
             }
             if (datatransferstyle == CHARACTER_TRANSFER_BY_CHAR && canProvideWriter()) {
                 return new DataTaskByCharSTDOUT("stdout", encoding, streamsupplier.get(), getWriter(io), iotabname);
             }
+            if (datatransferstyle == CHARACTER_TRANSFER_BY_BLOCK && canProvideWriter()) {
+                return new DataTaskByBlockSTDOUT("stdout", encoding, streamsupplier.get(), getWriter(io), iotabname);
+            }
             if (datatransferstyle == STREAM_TRANSFER && canProvideStream()) {
-                return new DataTaskByStream("stdout", streamsupplier.get(), getOutputStream(), iotabname);
+                return new DataTaskByStream("stdout", Channels.newChannel(streamsupplier.get()), getWritableChannel(), getBufferSize(), isDirectBuffer(), iotabname);
             }
             if (datatransferstyle == STREAM_OR_CHARACTER_TRANSFER && canProvideStream()) {
-                return new DataTaskByStream("stdout", streamsupplier.get(), getOutputStream(), iotabname);
+                return new DataTaskByStream("stdout", Channels.newChannel(streamsupplier.get()), getWritableChannel(), getBufferSize(), isDirectBuffer(), iotabname);
             }
             if (datatransferstyle == STREAM_OR_CHARACTER_TRANSFER && canProvideWriter()) {
                 return new DataTaskByLine("stdout", readersupplier.get(), getWriter(io), iotabname);
@@ -15,14 +15,18 @@
  */
 package uk.theretiredprogrammer.activity;
 
+import java.io.IOException;
 import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import org.netbeans.api.io.InputOutput;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.METHOD;
 
 public class ConsumerMethodActivityExecutor implements ActivityExecutor {
 
     private final Consumer<Writer> method;
-    private Thread runningthread;
+    private volatile Thread runningthread;
+    private CompletableFuture<Void> completion;
     private Writer stdoutwriter;
 
     public ConsumerMethodActivityExecutor(Consumer<Writer> method) {
@@ -40,20 +44,44 @@ public class ConsumerMethodActivityExecutor implements ActivityExecutor {
         stdoutwriter = stdout.getSTDOUTConnection(io);
     }
 
+    // with virtual threads, the method runs on its own thread, so an asynchronous run releases its pooled thread;
+    // otherwise the method runs on the called thread to completion before returning
     @Override
     public void run() {
-        runningthread = Thread.currentThread();
-        method.accept(stdoutwriter);
+        if (ActivityScheduler.isVirtual(METHOD)) {
+            completion = new CompletableFuture<>();
+            ActivityScheduler.submit(METHOD, () -> {
+                runningthread = Thread.currentThread();
+                try {
+                    method.accept(stdoutwriter);
+                    completion.complete(null);
+                } catch (RuntimeException | Error ex) {
+                    completion.completeExceptionally(ex);
+                }
+            });
+        } else {
+            runningthread = Thread.currentThread();
+            method.accept(stdoutwriter);
+            completion = CompletableFuture.completedFuture(null);
+        }
     }
 
-    //    No wait required as method runs on called thread to completion before returning
     @Override
-    public void waitUntilCompletion() {
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
     }
 
     @Override
-    public void close() {
+    public int getExitCode() {
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
         runningthread = null;
+        if (stdoutwriter != null) {
+            stdoutwriter.flush();
+        }
     }
 
     //    Cancel the running Task if cancel issued
@@ -17,5 +17,6 @@ package uk.theretiredprogrammer.activity;
 
 public interface DataTask {
     public void close();
+    public long getTransferred();
     public void cancel();
 }
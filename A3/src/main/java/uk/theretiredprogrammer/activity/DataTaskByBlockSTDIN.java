@@ -0,0 +1,135 @@
+/*
+ * Copyright 2022-23 Richard Linsdale
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.DATATASK;
+import uk.theretiredprogrammer.util.UserReporting;
+
+public class DataTaskByBlockSTDIN implements DataTask {
+
+    private static final int BUFFERSIZE = 1024;
+
+    private final OutputStream output;
+    private final Reader input;
+    private final String iotabname;
+    private final String name;
+    private final Future<?> task;
+    private volatile long transferred = 0;
+    private final Charset charset;
+
+    public DataTaskByBlockSTDIN(String name, String encoding, Reader input, OutputStream output, String iotabname) {
+        this.iotabname = iotabname;
+        this.name = name.toUpperCase();
+        this.output = output;
+        this.input = input;
+        this.charset = Charset.forName(encoding);
+        task = ActivityScheduler.submit(DATATASK, () -> copy(input, output));
+    }
+
+    // characters are encoded a block at a time; the stream is flushed whenever the
+    // reader has nothing further ready so that typed input reaches the device promptly
+    private void copy(Reader input, OutputStream output) {
+        DataTransferEvent event = new DataTransferEvent(name, "CHARACTER_TRANSFER_BY_BLOCK");
+        event.begin();
+        try (input; output) {
+            CharsetEncoder encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer chars = CharBuffer.allocate(BUFFERSIZE);
+            ByteBuffer bytes = ByteBuffer.allocate((int) Math.ceil(BUFFERSIZE * encoder.maxBytesPerChar()));
+            int n;
+            while ((n = input.read(chars.array(), chars.position(), chars.remaining())) != -1) {
+                chars.position(chars.position() + n);
+                chars.flip();
+                encode(encoder, chars, bytes, output, false);
+                chars.compact();
+                if (!input.ready()) {
+                    output.flush();
+                }
+            }
+            chars.flip();
+            encode(encoder, chars, bytes, output, true);
+            while (encoder.flush(bytes).isOverflow()) {
+                write(bytes, output);
+            }
+            write(bytes, output);
+            output.flush();
+        } catch (IOException ex) {
+            UserReporting.error(iotabname, "While copying " + name + " using CHARACTER_TRANSFER_BY_BLOCK - " + ex);
+        }
+        event.complete(transferred);
+    }
+
+    private void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer bytes, OutputStream output, boolean endofinput) throws IOException {
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, bytes, endofinput);
+            write(bytes, output);
+        } while (result.isOverflow());
+    }
+
+    private void write(ByteBuffer bytes, OutputStream output) throws IOException {
+        if (bytes.position() > 0) {
+            output.write(bytes.array(), 0, bytes.position());
+            transferred += bytes.position();
+            bytes.clear();
+        }
+    }
+
+    public long getTransferred() {
+        return transferred;
+    }
+
+    public void close() {
+        try {
+            task.get(1000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            task.cancel(false);
+        } catch (CancellationException ex) {
+            // already cancelled
+        } catch (InterruptedException | ExecutionException ex) {
+            UserReporting.warning(iotabname, "While waiting to close " + name + " using CHARACTER_TRANSFER_BY_BLOCK - " + ex);
+        }
+        closeIO();
+    }
+
+    public void cancel() {
+        task.cancel(false);
+    }
+
+    private void closeIO() {
+        try {
+            output.close();
+            input.close();
+        } catch (IOException ex) {
+            UserReporting.warning(iotabname, "While closing " + name + " using CHARACTER_TRANSFER_BY_BLOCK - " + ex);
+        }
+    }
+}
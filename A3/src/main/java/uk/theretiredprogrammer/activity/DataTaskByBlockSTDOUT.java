@@ -0,0 +1,135 @@
+/*
+ * Copyright 2022-23 Richard Linsdale
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.DATATASK;
+import uk.theretiredprogrammer.util.UserReporting;
+
+public class DataTaskByBlockSTDOUT implements DataTask {
+
+    private static final int BUFFERSIZE = 4096;
+
+    private final Writer output;
+    private final InputStream input;
+    private final String iotabname;
+    private final String name;
+    private final Future<?> task;
+    private volatile long transferred = 0;
+    private final Charset charset;
+
+    public DataTaskByBlockSTDOUT(String name, String encoding, InputStream input, Writer output, String iotabname) {
+        this.iotabname = iotabname;
+        this.name = name.toUpperCase();
+        this.output = output;
+        this.input = input;
+        this.charset = Charset.forName(encoding);
+        task = ActivityScheduler.submit(DATATASK, () -> copy(input, output));
+    }
+
+    // bytes are decoded a block at a time; the writer is flushed whenever the
+    // input has nothing further available so that interactive output is not held back
+    private void copy(InputStream input, Writer output) {
+        DataTransferEvent event = new DataTransferEvent(name, "CHARACTER_TRANSFER_BY_BLOCK");
+        event.begin();
+        try (input; output) {
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            ByteBuffer bytes = ByteBuffer.allocate(BUFFERSIZE);
+            CharBuffer chars = CharBuffer.allocate(BUFFERSIZE);
+            int n;
+            while ((n = input.read(bytes.array(), bytes.position(), bytes.remaining())) != -1) {
+                bytes.position(bytes.position() + n);
+                transferred += n;
+                bytes.flip();
+                decode(decoder, bytes, chars, output, false);
+                bytes.compact();
+                if (input.available() == 0) {
+                    output.flush();
+                }
+            }
+            bytes.flip();
+            decode(decoder, bytes, chars, output, true);
+            while (decoder.flush(chars).isOverflow()) {
+                write(chars, output);
+            }
+            write(chars, output);
+            output.flush();
+        } catch (IOException ex) {
+            UserReporting.error(iotabname, "While copying " + name + " using CHARACTER_TRANSFER_BY_BLOCK - " + ex);
+        }
+        event.complete(transferred);
+    }
+
+    private void decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, Writer output, boolean endofinput) throws IOException {
+        CoderResult result;
+        do {
+            result = decoder.decode(bytes, chars, endofinput);
+            write(chars, output);
+        } while (result.isOverflow());
+    }
+
+    private void write(CharBuffer chars, Writer output) throws IOException {
+        if (chars.position() > 0) {
+            output.write(chars.array(), 0, chars.position());
+            chars.clear();
+        }
+    }
+
+    public long getTransferred() {
+        return transferred;
+    }
+
+    public void close() {
+        try {
+            task.get(1000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            task.cancel(false);
+        } catch (CancellationException ex) {
+            // already cancelled
+        } catch (InterruptedException | ExecutionException ex) {
+            UserReporting.warning(iotabname, "While waiting to close " + name + " using CHARACTER_TRANSFER_BY_BLOCK - " + ex);
+        }
+        closeIO();
+    }
+
+    public void cancel() {
+        task.cancel(false);
+    }
+
+    private void closeIO() {
+        try {
+            output.close();
+            input.close();
+        } catch (IOException ex) {
+            UserReporting.warning(iotabname, "While closing " + name + " using CHARACTER_TRANSFER_BY_BLOCK - " + ex);
+        }
+    }
+}
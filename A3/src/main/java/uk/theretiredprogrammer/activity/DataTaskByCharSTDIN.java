@@ -18,7 +18,12 @@ package uk.theretiredprogrammer.activity;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Reader;
-import org.openide.util.RequestProcessor;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.DATATASK;
 import uk.theretiredprogrammer.util.UserReporting;
 
 public class DataTaskByCharSTDIN implements DataTask {
@@ -27,7 +32,8 @@ public class DataTaskByCharSTDIN implements DataTask {
     private final Reader input;
     private final String iotabname;
     private final String name;
-    private final RequestProcessor.Task task;
+    private final Future<?> task;
+    private volatile long transferred = 0;
     private final String encoding;
 
     public DataTaskByCharSTDIN(String name, String encoding, Reader input, OutputStream output, String iotabname) {
@@ -36,34 +42,44 @@ public class DataTaskByCharSTDIN implements DataTask {
         this.output = output;
         this.input = input;
         this.encoding = encoding;
-        RequestProcessor processor = new RequestProcessor(name);
-        task = processor.post(() -> copy(input, output));
+        task = ActivityScheduler.submit(DATATASK, () -> copy(input, output));
     }
 
     private void copy(Reader input, OutputStream output) {
+        DataTransferEvent event = new DataTransferEvent(name, "CHARACTER_TRANSFER_BY_CHAR");
+        event.begin();
         try (input; output) {
             int chr;
             while ((chr = input.read()) != -1) {
-                output.write((String.valueOf((char)chr).getBytes(encoding)));
+                byte[] bytes = String.valueOf((char) chr).getBytes(encoding);
+                output.write(bytes);
+                transferred += bytes.length;
             }
         } catch (IOException ex) {
             UserReporting.error(iotabname, "While copying " + name + " using CHARACTER_TRANSFER_BY_CHAR - " + ex);
         }
+        event.complete(transferred);
+    }
+
+    public long getTransferred() {
+        return transferred;
     }
 
     public void close() {
         try {
-            if (!task.waitFinished(1000)) {
-                task.cancel();
-            }
-        } catch (InterruptedException ex) {
+            task.get(1000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            task.cancel(false);
+        } catch (CancellationException ex) {
+            // already cancelled
+        } catch (InterruptedException | ExecutionException ex) {
             UserReporting.warning(iotabname, "While waiting to close " + name + " using CHARACTER_TRANSFER_BY_CHAR - " + ex);
         }
         closeIO();
     }
 
     public void cancel() {
-        task.cancel();
+        task.cancel(false);
     }
 
     private void closeIO() {
@@ -19,8 +19,13 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
-import org.openide.util.RequestProcessor;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import static uk.theretiredprogrammer.activity.Activity.NEWLINE;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.DATATASK;
 import uk.theretiredprogrammer.util.UserReporting;
 
 public class DataTaskByLine implements DataTask {
@@ -29,7 +34,8 @@ public class DataTaskByLine implements DataTask {
     private final Reader input;
     private final String iotabname;
     private final String name;
-    private final RequestProcessor.Task task;
+    private final Future<?> task;
+    private volatile long transferred = 0;
 
     public DataTaskByLine(String name, Reader input, Writer output, String iotabname) {
         this.iotabname = iotabname;
@@ -38,35 +44,44 @@ public class DataTaskByLine implements DataTask {
         BufferedReader brdr = input instanceof BufferedReader
                 ? (BufferedReader) input : new BufferedReader(input);
         this.input = brdr;
-        RequestProcessor processor = new RequestProcessor(name);
-        task = processor.post(() -> copy(brdr, output));
+        task = ActivityScheduler.submit(DATATASK, () -> copy(brdr, output));
     }
 
     private void copy(BufferedReader input, Writer output) {
+        DataTransferEvent event = new DataTransferEvent(name, "CHARACTER_TRANSFER_BY_LINE");
+        event.begin();
         try (input; output) {
             String line;
             while ((line = input.readLine()) != null) {
                 output.write(line);
                 output.write(NEWLINE);
+                transferred += line.length() + NEWLINE.length();
             }
         } catch (IOException ex) {
             UserReporting.error(iotabname, "While copying " + name + " using CHARACTER_TRANSFER_BY_LINE - " + ex);
         }
+        event.complete(transferred);
+    }
+
+    public long getTransferred() {
+        return transferred;
     }
 
     public void close() {
         try {
-            if (!task.waitFinished(1000)) {
-                task.cancel();
-            }
-        } catch (InterruptedException ex) {
+            task.get(1000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            task.cancel(false);
+        } catch (CancellationException ex) {
+            // already cancelled
+        } catch (InterruptedException | ExecutionException ex) {
             UserReporting.warning(iotabname, "While waiting to close " + name + " using CHARACTER_TRANSFER_BY_LINE - " + ex);
         }
         closeIO();
     }
 
     public void cancel() {
-        task.cancel();
+        task.cancel(false);
     }
 
     private void closeIO() {
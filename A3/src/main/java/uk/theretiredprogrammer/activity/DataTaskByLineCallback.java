@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.DATATASK;
+import uk.theretiredprogrammer.util.UserReporting;
+
+public class DataTaskByLineCallback implements DataTask {
+
+    private final Reader input;
+    private final LineSequenceWriter output;
+    private final int buffersize;
+    private final String iotabname;
+    private final String name;
+    private final Future<?> task;
+    private volatile long transferred = 0;
+
+    public DataTaskByLineCallback(String name, Reader input, LineSequenceWriter output, int buffersize, String iotabname) {
+        this.iotabname = iotabname;
+        this.name = name.toUpperCase();
+        this.input = input;
+        this.output = output;
+        this.buffersize = buffersize;
+        task = ActivityScheduler.submit(DATATASK, () -> copy(input, output));
+    }
+
+    // blocks of characters are passed straight to the line writer - no String is created for each line
+    private void copy(Reader input, LineSequenceWriter output) {
+        DataTransferEvent event = new DataTransferEvent(name, "CHARACTER_TRANSFER_BY_LINE_CALLBACK");
+        event.begin();
+        try (input; output) {
+            char[] buffer = new char[buffersize];
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                output.write(buffer, 0, n);
+                transferred += n;
+            }
+        } catch (IOException ex) {
+            UserReporting.error(iotabname, "While copying " + name + " using CHARACTER_TRANSFER_BY_LINE_CALLBACK - " + ex);
+        }
+        event.complete(transferred);
+    }
+
+    public long getTransferred() {
+        return transferred;
+    }
+
+    public void close() {
+        try {
+            task.get(1000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            task.cancel(false);
+        } catch (CancellationException ex) {
+            // already cancelled
+        } catch (InterruptedException | ExecutionException ex) {
+            UserReporting.warning(iotabname, "While waiting to close " + name + " using CHARACTER_TRANSFER_BY_LINE_CALLBACK - " + ex);
+        }
+        closeIO();
+    }
+
+    public void cancel() {
+        task.cancel(false);
+    }
+
+    private void closeIO() {
+        try {
+            input.close();
+        } catch (IOException ex) {
+            UserReporting.warning(iotabname, "While closing " + name + " using CHARACTER_TRANSFER_BY_LINE_CALLBACK - " + ex);
+        }
+    }
+}
@@ -16,53 +16,81 @@
 package uk.theretiredprogrammer.activity;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import org.openide.util.RequestProcessor;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.DATATASK;
 import uk.theretiredprogrammer.util.UserReporting;
 
 public class DataTaskByStream implements DataTask {
 
-    private final OutputStream os;
-    private final InputStream is;
+    private final WritableByteChannel os;
+    private final ReadableByteChannel is;
     private final String iotabname;
     private final String name;
-    private final RequestProcessor.Task task;
+    private final int buffersize;
+    private final boolean directbuffer;
+    private final Future<?> task;
+    private volatile long transferred = 0;
 
-    public DataTaskByStream(String name, InputStream is, OutputStream os, String iotabname) {
+    public DataTaskByStream(String name, ReadableByteChannel is, WritableByteChannel os, int buffersize, boolean directbuffer, String iotabname) {
         this.iotabname = iotabname;
         this.name = name.toUpperCase();
         this.os = os;
         this.is = is;
-        RequestProcessor processor = new RequestProcessor(name);
-        task = processor.post(() -> copy(is, os));
+        this.buffersize = buffersize;
+        this.directbuffer = directbuffer;
+        task = ActivityScheduler.submit(DATATASK, () -> copy(is, os));
     }
 
-    private void copy(InputStream is, OutputStream os) {
+    // one end is always a process pipe, so the data is copied through the configured buffer
+    private void copy(ReadableByteChannel is, WritableByteChannel os) {
+        DataTransferEvent event = new DataTransferEvent(name, "STREAM_TRANSFER");
+        event.begin();
         try (is; os) {
-            byte[] buf = new byte[8192];
-            int n;
-            while ((n = is.read(buf)) != -1) {
-                os.write(buf, 0, n);
-            }
+            copyByBuffer(is, os);
         } catch (IOException ex) {
             UserReporting.error(iotabname, "While copying " + name + " using STREAM_TRANSFER - " + ex);
         }
+        event.complete(transferred);
+    }
+
+    private void copyByBuffer(ReadableByteChannel is, WritableByteChannel os) throws IOException {
+        ByteBuffer buffer = directbuffer ? ByteBuffer.allocateDirect(buffersize) : ByteBuffer.allocate(buffersize);
+        while (is.read(buffer) != -1) {
+            buffer.flip();
+            transferred += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                os.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    public long getTransferred() {
+        return transferred;
     }
 
     public void close() {
         try {
-            if (!task.waitFinished(1000)) {
-                task.cancel();
-            }
-        } catch (InterruptedException ex) {
+            task.get(1000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            task.cancel(false);
+        } catch (CancellationException ex) {
+            // already cancelled
+        } catch (InterruptedException | ExecutionException ex) {
             UserReporting.warning(iotabname, "While waiting to close " + name + " using STREAM_TRANSFER - " + ex);
         }
         closeIO();
     }
 
     public void cancel() {
-        task.cancel();
+        task.cancel(false);
     }
 
     private void closeIO() {
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("uk.theretiredprogrammer.activity.DataTransfer")
+@Label("Activity Data Transfer")
+@Description("A DataTask copying one stream of an Activity")
+@Category({"Activities and Actions"})
+@StackTrace(false)
+public class DataTransferEvent extends Event {
+
+    @Label("Stream")
+    public String stream;
+
+    @Label("Transfer Style")
+    public String style;
+
+    @Label("Transferred")
+    @Description("Bytes transferred (characters for CHARACTER_TRANSFER_BY_LINE)")
+    @DataAmount
+    public long transferred;
+
+    public DataTransferEvent(String stream, String style) {
+        this.stream = stream;
+        this.style = style;
+    }
+
+    public void complete(long transferred) {
+        end();
+        if (shouldCommit()) {
+            this.transferred = transferred;
+            commit();
+        }
+    }
+}
@@ -15,12 +15,17 @@
  */
 package uk.theretiredprogrammer.activity;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 import org.netbeans.api.io.InputOutput;
-import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.CHARACTER_TRANSFER_BY_CHAR;
+import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.CHARACTER_TRANSFER_BY_BLOCK;
 
 public class DeviceActivityExecutor implements ActivityExecutor {
 
     private final DeviceDescriptor dd;
+    private CompletableFuture<Void> completion = new CompletableFuture<>();
 
     public DeviceActivityExecutor(DeviceDescriptor dd) {
         this.dd = dd;
@@ -33,34 +38,78 @@ public class DeviceActivityExecutor implements ActivityExecutor {
 
     @Override
     public void open(ConnectionSTDIN stdin, ConnectionSTDOUT stdout, ConnectionSTDERR stderr, InputOutput io) throws Exception {
+        completion = new CompletableFuture<>();
         dd.open();
         String encoding = dd.getDeviceProperty("encoding");
-        stdin.set(CHARACTER_TRANSFER_BY_CHAR, () -> dd.getSTDINStream(), encoding);
-        stdout.set(CHARACTER_TRANSFER_BY_CHAR, () -> dd.getSTDOUTStream(), encoding);
+        stdin.set(CHARACTER_TRANSFER_BY_BLOCK, () -> dd.getSTDINStream(), encoding);
+        stdout.set(CHARACTER_TRANSFER_BY_BLOCK, () -> new EndOfStreamSignal(dd.getSTDOUTStream()), encoding);
     }
 
     @Override
     public void run() throws Exception {
     }
 
+    //    Complete when the device is closed or cancelled, or its STDOUT reaches EOF
     @Override
-    @SuppressWarnings("SleepWhileInLoop")
-    public void waitUntilCompletion() {
-        try {
-            while (true) { // wait until cancelled
-                Thread.sleep(1000);
-            }
-        } catch (InterruptedException ex) {
-        }
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public int getExitCode() {
+        return 0;
     }
 
     @Override
     public void close() throws Exception {
-        dd.close();
+        try {
+            dd.close();
+        } finally {
+            completion.complete(null);
+        }
     }
 
     @Override
     public void cancel() throws Exception {
-        dd.cancel();
+        try {
+            dd.cancel();
+        } finally {
+            completion.complete(null);
+        }
+    }
+
+    private class EndOfStreamSignal extends FilterInputStream {
+
+        EndOfStreamSignal(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return signalOnEnd(() -> super.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return signalOnEnd(() -> super.read(b, off, len));
+        }
+
+        private int signalOnEnd(IOSupplier reader) throws IOException {
+            try {
+                int count = reader.get();
+                if (count < 0) {
+                    completion.complete(null);
+                }
+                return count;
+            } catch (IOException ex) {
+                completion.complete(null);
+                throw ex;
+            }
+        }
+    }
+
+    private interface IOSupplier {
+
+        int get() throws IOException;
     }
 }
@@ -17,69 +17,111 @@ package uk.theretiredprogrammer.activity;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import org.netbeans.api.io.InputOutput;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.util.UserReporting;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.WATCH;
 
 public class IOTabCloseWatch {
 
-    private static final List<WatchParameters> iotabstowatch = new ArrayList<>();
+    private static final long MINIMUMINTERVAL = 100; // ms
+    private static final long MAXIMUMINTERVAL = 400; // ms
 
-    public static synchronized boolean watch(String iotabname, InputOutput io, Runnable runifclosed) {
-        if (runifclosed == null || watchcontains(io)) {
-            UserReporting.errorLogOnly("Problem in setting up an iotab watch - either the Runnable is null or the iotab is already being watched");
+    // InputOutput does not override equals/hashCode, so tabs are keyed by identity; several Activities
+    // can share a tab, so each tab has a list of watches - a list is replaced, never changed in place
+    private static final Map<InputOutput, List<WatchParameters>> iotabstowatch = new ConcurrentHashMap<>();
+    private static final Object schedulelock = new Object();
+    private static ScheduledFuture<?> scheduled;
+    private static long interval = MINIMUMINTERVAL;
+
+    public static boolean watch(String iotabname, InputOutput io, Runnable runifclosed) {
+        if (runifclosed == null) {
+            UserReporting.errorLogOnly("Problem in setting up an iotab watch - the Runnable is null");
             return false;
-        } else {
-            iotabstowatch.add(new WatchParameters(io, runifclosed, iotabname));
-            UserReporting.infoLogOnly("inserted iotabclosewatch for " + iotabname);
-            return true;
         }
+        WatchParameters watch = new WatchParameters(runifclosed, iotabname);
+        iotabstowatch.compute(io, (k, watches) -> {
+            List<WatchParameters> updated = watches == null ? new ArrayList<>() : new ArrayList<>(watches);
+            updated.add(watch);
+            return updated;
+        });
+        UserReporting.infoLogOnly("inserted iotabclosewatch for " + iotabname);
+        synchronized (schedulelock) {
+            interval = MINIMUMINTERVAL;
+            scheduleCheck();
+        }
+        return true;
     }
 
-    static {
-        UserReporting.infoLogOnly("IOTabCloseWatch static initialisation");
-        RequestProcessor processor = new RequestProcessor("iotabclosewatch");
-        processor.scheduleAtFixedRate(() -> checkAndRemove(), 100, 100, TimeUnit.MILLISECONDS);
-    }
-
-    private static boolean watchcontains(InputOutput io) {
-        for (int i = 0; i < iotabstowatch.size(); i++) {
-            WatchParameters watch = iotabstowatch.get(i);
-            if (watch.io.equals(io)) {
-                return true;
+    // only the watch set up with this Runnable is removed - other watches on the same tab continue
+    public static boolean unwatch(InputOutput io, Runnable runifclosed) {
+        List<WatchParameters> removed = new ArrayList<>();
+        iotabstowatch.computeIfPresent(io, (k, watches) -> {
+            List<WatchParameters> updated = new ArrayList<>(watches);
+            for (WatchParameters watch : watches) {
+                if (watch.runifclosed == runifclosed) {
+                    updated.remove(watch);
+                    removed.add(watch);
+                    break;
+                }
             }
+            return updated.isEmpty() ? null : updated;
+        });
+        if (removed.isEmpty()) {
+            return false;
         }
-        return false;
+        UserReporting.infoLogOnly("removed iotabclosewatch: " + removed.get(0).iotabname + " (completed)");
+        return true;
     }
 
-    private static synchronized void checkAndRemove() {
-        int index;
-        while ((index = check()) != -1) {
-            iotabstowatch.remove(index);
+    // polling is only scheduled while there are tabs being watched (no close listener is available
+    // in the IO API); the interval backs off while nothing is closed
+    private static void scheduleCheck() {
+        if (scheduled == null && !iotabstowatch.isEmpty()) {
+            scheduled = ActivityScheduler.schedule(WATCH, () -> checkAndRemove(), interval, TimeUnit.MILLISECONDS);
         }
     }
 
-    private static int check() {
-        for (int i = 0; i < iotabstowatch.size(); i++) {
-            WatchParameters watch = iotabstowatch.get(i);
-            if (watch.io.isClosed()) {
-                watch.runifclosed.run();
-                UserReporting.infoLogOnly("removed iotabclosewatch: "+watch.iotabname+"; index = " + Integer.toString(i));
-                return i;
+    // the next check is always scheduled, whatever a closed tab's Runnables do
+    private static void checkAndRemove() {
+        boolean closed = false;
+        try {
+            for (InputOutput io : iotabstowatch.keySet()) {
+                if (io.isClosed()) {
+                    List<WatchParameters> watches = iotabstowatch.remove(io);
+                    if (watches != null) {
+                        closed = true;
+                        watches.forEach(watch -> runClosed(watch));
+                    }
+                }
             }
+        } finally {
+            synchronized (schedulelock) {
+                scheduled = null;
+                interval = closed ? MINIMUMINTERVAL : Math.min(interval * 2, MAXIMUMINTERVAL);
+                scheduleCheck();
+            }
+        }
+    }
+
+    private static void runClosed(WatchParameters watch) {
+        UserReporting.infoLogOnly("removed iotabclosewatch: " + watch.iotabname);
+        try {
+            watch.runifclosed.run();
+        } catch (RuntimeException ex) {
+            UserReporting.exceptionWithMessage(watch.iotabname, "Error when cancelling after the IO Tab was closed", ex);
         }
-        return -1;
     }
 
     private static class WatchParameters {
 
-        public final InputOutput io;
         public final Runnable runifclosed;
         public final String iotabname;
 
-        public WatchParameters(InputOutput io, Runnable runifclosed, String iotabname) {
-            this.io = io;
+        public WatchParameters(Runnable runifclosed, String iotabname) {
             this.runifclosed = runifclosed;
             this.iotabname = iotabname;
         }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.netbeans.api.io.InputOutput;
+
+public class IOTabSection {
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final PrintWriter out = new SectionWriter(false);
+    private final PrintWriter err = new SectionWriter(true);
+
+    public PrintWriter getOut() {
+        return out;
+    }
+
+    public PrintWriter getErr() {
+        return err;
+    }
+
+    public synchronized boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    // replay the section in the order it was written, keeping STDOUT and STDERR apart
+    public synchronized void writeTo(InputOutput io) {
+        for (Segment segment : segments) {
+            (segment.stderr ? io.getErr() : io.getOut()).print(segment.text);
+        }
+    }
+
+    private synchronized void appendToSegment(boolean stderr, char[] cbuf, int off, int len) {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last == null || last.stderr != stderr) {
+            last = new Segment(stderr);
+            segments.add(last);
+        }
+        last.text.append(cbuf, off, len);
+    }
+
+    private static class Segment {
+
+        public final boolean stderr;
+        public final StringBuilder text = new StringBuilder();
+
+        public Segment(boolean stderr) {
+            this.stderr = stderr;
+        }
+    }
+
+    // DataTasks close their output on completion, so closing a section writer only flushes it
+    private class SectionWriter extends PrintWriter {
+
+        SectionWriter(boolean stderr) {
+            super(new SegmentWriter(stderr));
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    private class SegmentWriter extends Writer {
+
+        private final boolean stderr;
+
+        SegmentWriter(boolean stderr) {
+            this.stderr = stderr;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            appendToSegment(stderr, cbuf, off, len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
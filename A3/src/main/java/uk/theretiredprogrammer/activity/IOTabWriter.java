@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.netbeans.api.io.Hyperlink;
+import org.netbeans.api.io.OutputWriter;
+import org.openide.cookies.OpenCookie;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.loaders.DataObject;
+import org.openide.loaders.DataObjectNotFoundException;
+import uk.theretiredprogrammer.util.UserReporting;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.WATCH;
+
+public class IOTabWriter extends Writer {
+
+    private static final int FLUSHSIZE = 8192;
+    private static final long FLUSHINTERVAL = 100; // ms
+
+    private final String name;
+    private final OutputWriter target;
+    private final long limit;
+    private final StringBuilder buffer = new StringBuilder();
+    private ScheduledFuture<?> scheduledflush;
+    private long written = 0;
+    private File spillfile;
+    private Writer spill;
+
+    // limit is the number of characters written to the IO Tab before output spills to a file (0 = no limit)
+    public IOTabWriter(String name, OutputWriter target, long limit) {
+        this.name = name;
+        this.target = target;
+        this.limit = limit;
+    }
+
+    // writes are coalesced and passed to the IO Tab when the buffer fills or
+    // after a short interval, so chatty output is not written a line at a time
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        synchronized (lock) {
+            int accepted = limit > 0 ? (int) Math.min(len, Math.max(0, limit - written)) : len;
+            if (accepted > 0) {
+                buffer.append(cbuf, off, accepted);
+                written += accepted;
+            }
+            if (accepted < len) {
+                spill(cbuf, off + accepted, len - accepted);
+            }
+            if (buffer.length() >= FLUSHSIZE) {
+                writeBuffer();
+            } else if (buffer.length() > 0 && scheduledflush == null) {
+                scheduledflush = ActivityScheduler.schedule(WATCH, () -> timedFlush(), FLUSHINTERVAL, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        synchronized (lock) {
+            writeBuffer();
+            if (spill != null) {
+                spill.flush();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            writeBuffer();
+            if (spill != null) {
+                spill.close();
+            }
+            target.close();
+        }
+    }
+
+    private void timedFlush() {
+        synchronized (lock) {
+            scheduledflush = null;
+            writeBuffer();
+        }
+    }
+
+    private void writeBuffer() {
+        if (scheduledflush != null) {
+            scheduledflush.cancel(false);
+            scheduledflush = null;
+        }
+        if (buffer.length() > 0) {
+            target.write(buffer.toString());
+            target.flush();
+            buffer.setLength(0);
+        }
+    }
+
+    private void spill(char[] cbuf, int off, int len) throws IOException {
+        if (spill == null) {
+            writeBuffer();
+            // UTF-8, so that any output can be held, and only kept for this IDE session
+            spillfile = File.createTempFile("a3-" + name + "-", ".log");
+            spillfile.deleteOnExit();
+            spill = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spillfile), StandardCharsets.UTF_8));
+            target.println();
+            target.println("... " + name + " truncated after " + limit + " characters - the remainder is in "
+                    + spillfile.getPath(), Hyperlink.from(() -> openSpillFile()));
+        }
+        spill.write(cbuf, off, len);
+    }
+
+    private void openSpillFile() {
+        FileObject fo = FileUtil.toFileObject(FileUtil.normalizeFile(spillfile));
+        try {
+            OpenCookie opener = fo == null ? null : DataObject.find(fo).getLookup().lookup(OpenCookie.class);
+            if (opener != null) {
+                opener.open();
+            } else {
+                UserReporting.warning("Cannot open " + spillfile.getPath());
+            }
+        } catch (DataObjectNotFoundException ex) {
+            UserReporting.exception(ex);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package uk.theretiredprogrammer.activity;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -23,6 +24,11 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import org.netbeans.api.io.InputOutput;
 import org.openide.filesystems.FileObject;
 import org.openide.loaders.DataObject;
@@ -41,6 +47,9 @@ public class InputIO {
     private File file;
     private InputStream instream;
     private Reader reader;
+    private int buffersize = 8192;
+    private boolean directbuffer = false;
+    private Charset charset = Charset.defaultCharset();
     
     public boolean isIOConfigured() {
         return mode != InStyle.IGNORE;
@@ -83,6 +92,27 @@ public class InputIO {
         this.reader = reader;
     }
     
+    public void setBuffer(int buffersize, boolean directbuffer) {
+        this.buffersize = buffersize;
+        this.directbuffer = directbuffer;
+    }
+
+    public int getBufferSize() {
+        return buffersize;
+    }
+
+    public boolean isDirectBuffer() {
+        return directbuffer;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
     public boolean canProvideReader() {
         return mode != InStyle.IGNORE;
     }
@@ -97,7 +127,7 @@ public class InputIO {
             case DATAOBJECT:
             case FILE:
             case FILESTREAM:
-                return new InputStreamReader(getInputStream());
+                return new BufferedReader(new InputStreamReader(getInputStream(), charset), buffersize);
             case FILEREADER:
                 return reader;
         }
@@ -123,4 +153,12 @@ public class InputIO {
         }
         throw new ApplicationException("Failed to find a STDIN stream");
     }
+
+    // only a plain File is read through a file channel - a FileObject or DataObject goes through the
+    // filesystem so that it is locked and its listeners are notified
+    public ReadableByteChannel getReadableChannel() throws ApplicationException, IOException {
+        return mode == InStyle.FILE
+                ? FileChannel.open(file.toPath(), StandardOpenOption.READ)
+                : Channels.newChannel(getInputStream());
+    }
 }
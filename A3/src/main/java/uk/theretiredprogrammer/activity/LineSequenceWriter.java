@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// collects output into lines held in a reused buffer, and passes each completed line (without its
+// terminator) to the callback as a CharSequence - which is only valid during the callback, as the
+// buffer is overwritten by the next line; toString() is needed to keep a line
+public class LineSequenceWriter extends Writer {
+
+    private final Consumer<CharSequence> callback;
+    private final LineView view = new LineView();
+    private char[] line = new char[256];
+    private int length = 0;
+    private boolean lastwasCR = false;
+
+    public LineSequenceWriter(Consumer<CharSequence> callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        int end = off + len;
+        int start = off;
+        for (int i = off; i < end; i++) {
+            char c = cbuf[i];
+            if (c == '\n' && lastwasCR) {
+                start = i + 1; // the line was ended by the preceding CR
+            } else if (c == '\n' || c == '\r') {
+                append(cbuf, start, i - start);
+                endLine();
+                start = i + 1;
+            }
+            lastwasCR = c == '\r';
+        }
+        append(cbuf, start, end - start);
+    }
+
+    @Override
+    public void write(int c) {
+        write(new char[]{(char) c}, 0, 1);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    // a final unterminated line is still delivered
+    @Override
+    public void close() {
+        if (length > 0) {
+            endLine();
+        }
+    }
+
+    private void append(char[] cbuf, int off, int len) {
+        if (len > 0) {
+            if (length + len > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, length + len));
+            }
+            System.arraycopy(cbuf, off, line, length, len);
+            length += len;
+        }
+    }
+
+    private void endLine() {
+        view.length = length;
+        callback.accept(view);
+        length = 0;
+    }
+
+    private class LineView implements CharSequence {
+
+        private int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return line[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException();
+            }
+            return new String(line, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(line, 0, length);
+        }
+    }
+}
@@ -37,6 +37,10 @@ public class NullTask implements DataTask {
         this.iotabname = iotabname;
     }
 
+    public long getTransferred() {
+        return 0;
+    }
+
     public void close() {
         closeIO();
     }
@@ -15,12 +15,21 @@
  */
 package uk.theretiredprogrammer.activity;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 import org.netbeans.api.io.InputOutput;
 import org.openide.filesystems.FileObject;
 import org.openide.loaders.DataObject;
@@ -29,7 +38,7 @@ import uk.theretiredprogrammer.util.ApplicationException;
 public class OutputIO {
 
     private static enum OutStyle {
-        IGNORE, DISCARD, FILEOBJECT, DATAOBJECT, FILE, FILESTREAM, FILEWRITER, IOSTDOUT, IOSTDERR
+        IGNORE, DISCARD, FILEOBJECT, DATAOBJECT, FILE, FILESTREAM, FILEWRITER, IOSTDOUT, IOSTDERR, SINKS, LINECALLBACK
     }
 
     private OutStyle mode = OutStyle.IGNORE;
@@ -39,7 +48,14 @@ public class OutputIO {
     private FileObject fileobject;
     private File file;
     private DataObject dataobject;
-    
+    private int buffersize = 8192;
+    private boolean directbuffer = false;
+    private Charset charset = Charset.defaultCharset();
+    private Writer iotabout;
+    private Writer iotaberr;
+    private long iotablimit = 0;
+    private List<OutputSink> sinks;
+    private Consumer<CharSequence> linecallback;
 
     public boolean isIOConfigured() {
         return mode != OutStyle.IGNORE;
@@ -86,6 +102,54 @@ public class OutputIO {
         this.writer = writer;
     }
 
+    public void toSinks(List<OutputSink> sinks) {
+        mode = OutStyle.SINKS;
+        this.sinks = sinks;
+    }
+
+    public void toLineCallback(Consumer<CharSequence> linecallback) {
+        mode = OutStyle.LINECALLBACK;
+        this.linecallback = linecallback;
+    }
+
+    public boolean isLineCallback() {
+        return mode == OutStyle.LINECALLBACK;
+    }
+
+    public LineSequenceWriter getLineCallbackWriter() {
+        return new LineSequenceWriter(linecallback);
+    }
+
+    public void redirectIOTab(Writer iotabout, Writer iotaberr) {
+        this.iotabout = iotabout;
+        this.iotaberr = iotaberr;
+    }
+
+    public void setIOTabLimit(long iotablimit) {
+        this.iotablimit = iotablimit;
+    }
+
+    public void setBuffer(int buffersize, boolean directbuffer) {
+        this.buffersize = buffersize;
+        this.directbuffer = directbuffer;
+    }
+
+    public int getBufferSize() {
+        return buffersize;
+    }
+
+    public boolean isDirectBuffer() {
+        return directbuffer;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
     public boolean canProvideWriter() {
         return mode != OutStyle.IGNORE;
     }
@@ -95,22 +159,49 @@ public class OutputIO {
             case DISCARD:
                 return Writer.nullWriter();
             case IOSTDOUT:
-                return io.getOut();
+                return iotabout != null ? iotabout : new IOTabWriter("stdout", io.getOut(), iotablimit);
             case IOSTDERR:
-                return io.getErr();
+                return iotaberr != null ? iotaberr : new IOTabWriter("stderr", io.getErr(), iotablimit);
+            case FILEOBJECT:
             case DATAOBJECT:
             case FILE:
             case FILESTREAM:
-                return new OutputStreamWriter(getOutputStream());
+                return new BufferedWriter(new OutputStreamWriter(getOutputStream(), charset), buffersize);
             case FILEWRITER:
                 return writer;
+            case LINECALLBACK:
+                return getLineCallbackWriter();
+            case SINKS:
+                List<Writer> writers = new ArrayList<>();
+                for (OutputSink sink : sinks) {
+                    writers.add(getSinkWriter(sink, io));
+                }
+                return new TeeWriter(writers);
         }
         throw new ApplicationException("Failed to find a STDERR writer");
     }
 
+    private Writer getSinkWriter(OutputSink sink, InputOutput io) throws ApplicationException, IOException {
+        switch (sink.getType()) {
+            case IOSTDOUT:
+                return iotabout != null ? iotabout : new IOTabWriter("stdout", io.getOut(), iotablimit);
+            case IOSTDERR:
+                return iotaberr != null ? iotaberr : new IOTabWriter("stderr", io.getErr(), iotablimit);
+            case FILE:
+                return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(sink.getFile()), charset), buffersize);
+            case FILEOBJECT:
+                return new BufferedWriter(new OutputStreamWriter(sink.getFileObject().getOutputStream(), charset), buffersize);
+            case LINES:
+                Consumer<String> callback = sink.getCallback();
+                return new LineSequenceWriter(line -> callback.accept(line.toString()));
+        }
+        throw new ApplicationException("Failed to find a writer for an output sink");
+    }
+
     public boolean canProvideStream() {
         return !(mode == OutStyle.IGNORE || mode == OutStyle.IOSTDOUT
-                || mode == OutStyle.IOSTDERR || mode == OutStyle.FILEWRITER);
+                || mode == OutStyle.IOSTDERR || mode == OutStyle.FILEWRITER || mode == OutStyle.SINKS
+                || mode == OutStyle.LINECALLBACK);
     }
 
     public OutputStream getOutputStream() throws ApplicationException, IOException {
@@ -128,4 +219,12 @@ public class OutputIO {
         }
         throw new ApplicationException("Failed to find a STDERR stream");
     }
+
+    // only a plain File is written through a file channel - a FileObject or DataObject goes through the
+    // filesystem so that it is locked and its listeners are notified
+    public WritableByteChannel getWritableChannel() throws ApplicationException, IOException {
+        return mode == OutStyle.FILE
+                ? FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)
+                : Channels.newChannel(getOutputStream());
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import org.netbeans.api.io.InputOutput;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import uk.theretiredprogrammer.util.UserReporting;
+import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.STREAM_OR_CHARACTER_TRANSFER;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.DATATASK;
+
+public class PersistentProcessActivityExecutor implements CommandActivityExecutor {
+
+    private static final int PIPESIZE = 65536;
+
+    private static String substituteNODEPATH(String source, FileObject node) {
+        return source.replace("${NODEPATH}", FileUtil.toFile(node).getAbsolutePath());
+    }
+
+    private final String command;
+    private final String args;
+    private final String request;
+    private final FileObject dir;
+    private final long idletimeout;
+    private PersistentWorker worker;
+    private PersistentWorker.Request workerrequest;
+    private ActivityPipe stdoutpipe;
+    private ActivityPipe stderrpipe;
+    private OutputStream stdoutsink;
+    private OutputStream stderrsink;
+    private CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+    private volatile int exitcode = -1;
+
+    public PersistentProcessActivityExecutor(String command, String args, String request, FileObject dir, long idletimeout) {
+        this.command = command;
+        this.args = args;
+        this.request = request;
+        this.dir = dir;
+        this.idletimeout = idletimeout;
+    }
+
+    @Override
+    public String getCommandLine() {
+        return command + " " + substituteNODEPATH(args, dir) + " <- " + substituteNODEPATH(request, dir);
+    }
+
+    @Override
+    public FileObject getDirectory() {
+        return dir;
+    }
+
+    @Override
+    public DeviceDescriptor getDeviceDescriptor() {
+        return null;
+    }
+
+    @Override
+    public void open(ConnectionSTDIN stdin, ConnectionSTDOUT stdout, ConnectionSTDERR stderr, InputOutput io) throws Exception {
+        worker = PersistentWorker.get(command, substituteNODEPATH(args, dir), dir, idletimeout);
+        workerrequest = new PersistentWorker.Request(substituteNODEPATH(request, dir));
+        exitcode = -1;
+        stdoutpipe = new ActivityPipe(PIPESIZE);
+        stderrpipe = new ActivityPipe(PIPESIZE);
+        // output which is not connected is discarded, so the worker is never held waiting on an unread pipe
+        stdoutsink = stdout.isIOConfigured() ? stdoutpipe.getOutputStream() : OutputStream.nullOutputStream();
+        stderrsink = stderr.isIOConfigured() ? stderrpipe.getOutputStream() : OutputStream.nullOutputStream();
+        stdout.set(STREAM_OR_CHARACTER_TRANSFER, () -> stdoutpipe.getInputStream(),
+                () -> new InputStreamReader(stdoutpipe.getInputStream(), StandardCharsets.UTF_8));
+        stderr.set(new InputStreamReader(stderrpipe.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void run() {
+        completion = new CompletableFuture<>();
+        PersistentWorker.Request runrequest = workerrequest;
+        ActivityScheduler.submit(DATATASK, () -> {
+            try {
+                exitcode = worker.exchange(runrequest, stdoutsink, stderrsink);
+            } catch (CancellationException ex) {
+                // reported by the Activity which cancelled it
+            } catch (IOException ex) {
+                UserReporting.warning("Worker process " + command + " failed - " + ex.getMessage());
+            } finally {
+                stdoutpipe.closeOutput();
+                stderrpipe.closeOutput();
+                completion.complete(null);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitcode;
+    }
+
+    // the worker is left running for the next request
+    @Override
+    public void close() {
+    }
+
+    // only this Activity's request is cancelled - other requests to the worker carry on
+    @Override
+    public void cancel() {
+        if (worker != null && workerrequest != null) {
+            worker.cancel(workerrequest);
+        }
+        if (stdoutpipe != null) {
+            stdoutpipe.cancel();
+            stderrpipe.cancel();
+        }
+    }
+}
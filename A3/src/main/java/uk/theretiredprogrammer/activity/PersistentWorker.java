@@ -0,0 +1,303 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.netbeans.api.project.FileOwnerQuery;
+import org.netbeans.api.project.Project;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.util.Utilities;
+import uk.theretiredprogrammer.util.UserReporting;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.WATCH;
+
+// A long running worker process, shared by all Activities of a project which use the same command.
+//
+// Each request is sent to the worker's stdin as a line "R <length>", followed by the UTF-8 request
+// bytes; a line "C" asks the worker to abandon the request it is running.
+// The worker replies with a sequence of frames: "O <length>" or "E <length>" lines, each followed
+// by that number of stdout or stderr bytes, ending with a line "X <exitcode>".
+//
+// Requests are handled one at a time, in the order they were made, so cancelling one request never
+// affects another. The worker's stderr is appended to a log in the project's .a3cache folder, and the
+// worker is expected to exit when its stdin is closed, as it is when the IDE exits.
+public class PersistentWorker {
+
+    private static final long CANCELGRACE = 2; // seconds
+    private static final String LOGFOLDER = ".a3cache";
+
+    private static final Map<String, PersistentWorker> workers = new ConcurrentHashMap<>();
+
+    public static PersistentWorker get(String command, String args, FileObject dir, long idletimeout) {
+        Project project = FileOwnerQuery.getOwner(dir);
+        FileObject owner = project != null ? project.getProjectDirectory() : dir;
+        String key = owner.getPath() + "\0" + command + "\0" + args;
+        return workers.computeIfAbsent(key, k -> new PersistentWorker(command, args, dir, owner, idletimeout));
+    }
+
+    public static class Request {
+
+        private final String text;
+        private volatile boolean cancelled = false;
+
+        public Request(String text) {
+            this.text = text;
+        }
+    }
+
+    private final String command;
+    private final String args;
+    private final FileObject dir;
+    private final File log;
+    private final long idletimeout;
+    private final Deque<Request> waiting = new ArrayDeque<>();
+    private Request current;
+    private volatile Process process;
+    private OutputStream requests;
+    private InputStream responses;
+    private ScheduledFuture<?> idlestop;
+
+    private PersistentWorker(String command, String args, FileObject dir, FileObject owner, long idletimeout) {
+        this.command = command;
+        this.args = args;
+        this.dir = dir;
+        this.log = new File(new File(FileUtil.toFile(owner), LOGFOLDER), new File(command).getName() + "-worker.log");
+        this.idletimeout = idletimeout;
+    }
+
+    public int exchange(Request request, OutputStream stdout, OutputStream stderr) throws IOException {
+        InputStream in;
+        synchronized (this) {
+            waitForTurn(request);
+            current = request;
+            if (idlestop != null) {
+                idlestop.cancel(false);
+                idlestop = null;
+            }
+            try {
+                byte[] requestbytes = request.text.getBytes(StandardCharsets.UTF_8);
+                try {
+                    sendRequest(requestbytes);
+                } catch (IOException ex) {
+                    // the worker has crashed since its last request - restart it and try once more
+                    UserReporting.infoLogOnly("restarting worker process " + command + " - " + ex.getMessage());
+                    stop();
+                    sendRequest(requestbytes);
+                }
+            } catch (IOException ex) {
+                stop();
+                finished();
+                throw ex;
+            }
+            in = responses;
+        }
+        try {
+            return readResponse(in, stdout, stderr);
+        } catch (IOException ex) {
+            stop();
+            if (request.cancelled) {
+                throw new CancellationException("Request cancelled - worker process " + command + " stopped");
+            }
+            throw new IOException(ex.getMessage() + " - see " + log.getPath(), ex);
+        } finally {
+            synchronized (this) {
+                finished();
+            }
+        }
+    }
+
+    // a cancelled request which is still waiting is just dropped; a running request is abandoned by
+    // the worker, which is only stopped if it does not reply in time
+    public synchronized void cancel(Request request) {
+        request.cancelled = true;
+        if (current == request && process != null) {
+            try {
+                requests.write("C\n".getBytes(StandardCharsets.US_ASCII));
+                requests.flush();
+                ActivityScheduler.schedule(WATCH, () -> stopIfRunning(request), CANCELGRACE, TimeUnit.SECONDS);
+            } catch (IOException ex) {
+                stop();
+            }
+        }
+        notifyAll();
+    }
+
+    private void waitForTurn(Request request) throws IOException {
+        waiting.add(request);
+        try {
+            while (current != null || waiting.peek() != request) {
+                if (request.cancelled) {
+                    throw new CancellationException("Request cancelled while waiting for worker process " + command);
+                }
+                wait();
+            }
+            if (request.cancelled) {
+                throw new CancellationException("Request cancelled while waiting for worker process " + command);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for worker process " + command);
+        } finally {
+            waiting.remove(request);
+            notifyAll();
+        }
+    }
+
+    private void finished() {
+        current = null;
+        if (process != null && waiting.isEmpty()) {
+            idlestop = ActivityScheduler.schedule(WATCH, () -> stopIfIdle(), idletimeout, TimeUnit.SECONDS);
+        }
+        notifyAll();
+    }
+
+    private synchronized void stopIfRunning(Request request) {
+        if (current == request) {
+            UserReporting.infoLogOnly("stopping worker process " + command + " - a cancelled request was not abandoned");
+            stop();
+        }
+    }
+
+    private synchronized void stopIfIdle() {
+        if (idlestop != null && current == null) {
+            idlestop = null;
+            UserReporting.infoLogOnly("stopping idle worker process " + command);
+            stop();
+        }
+    }
+
+    private void stop() {
+        Process p = process;
+        process = null;
+        if (p != null) {
+            p.descendants().forEach(ProcessHandle::destroy);
+            p.destroy();
+        }
+    }
+
+    private void sendRequest(byte[] requestbytes) throws IOException {
+        if (process == null || !process.isAlive()) {
+            start();
+        }
+        requests.write(("R " + requestbytes.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        requests.write(requestbytes);
+        requests.flush();
+    }
+
+    private void start() throws IOException {
+        File workingdir = FileUtil.toFile(dir);
+        ProcessSpawnEvent event = new ProcessSpawnEvent(command, args, String.valueOf(workingdir));
+        event.begin();
+        List<String> commandline = new ArrayList<>();
+        commandline.add(command);
+        commandline.addAll(List.of(Utilities.parseParameters(args)));
+        log.getParentFile().mkdirs();
+        Process p = new ProcessBuilder(commandline)
+                .directory(workingdir)
+                .redirectError(Redirect.appendTo(log))
+                .start();
+        event.commit();
+        requests = new BufferedOutputStream(p.getOutputStream());
+        responses = new BufferedInputStream(p.getInputStream());
+        process = p;
+    }
+
+    // output is discarded once its destination has gone, as the rest of the response must still be read
+    private int readResponse(InputStream in, OutputStream stdout, OutputStream stderr) throws IOException {
+        byte[] buffer = new byte[8192];
+        OutputStream[] destinations = new OutputStream[]{stdout, stderr};
+        while (true) {
+            String header = readHeader(in);
+            int value = parseValue(header);
+            switch (header.charAt(0)) {
+                case 'X':
+                    return value;
+                case 'O':
+                    destinations[0] = copyFrame(in, value, buffer, destinations[0]);
+                    break;
+                case 'E':
+                    destinations[1] = copyFrame(in, value, buffer, destinations[1]);
+                    break;
+                default:
+                    throw new IOException("Bad response frame from worker process: " + header);
+            }
+        }
+    }
+
+    private OutputStream copyFrame(InputStream in, int length, byte[] buffer, OutputStream out) throws IOException {
+        while (length > 0) {
+            int n = in.read(buffer, 0, Math.min(length, buffer.length));
+            if (n == -1) {
+                throw new EOFException("Worker process ended during a response");
+            }
+            try {
+                out.write(buffer, 0, n);
+            } catch (IOException ex) {
+                out = OutputStream.nullOutputStream();
+            }
+            length -= n;
+        }
+        try {
+            out.flush();
+        } catch (IOException ex) {
+            out = OutputStream.nullOutputStream();
+        }
+        return out;
+    }
+
+    private String readHeader(InputStream in) throws IOException {
+        StringBuilder header = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                throw new EOFException("Worker process ended during a response");
+            }
+            if (c != '\r') {
+                header.append((char) c);
+            }
+        }
+        return header.toString();
+    }
+
+    private int parseValue(String header) throws IOException {
+        if (header.length() < 3 || header.charAt(1) != ' ') {
+            throw new IOException("Bad response frame from worker process: " + header);
+        }
+        try {
+            return Integer.parseInt(header.substring(2).trim());
+        } catch (NumberFormatException ex) {
+            throw new IOException("Bad response frame from worker process: " + header);
+        }
+    }
+}
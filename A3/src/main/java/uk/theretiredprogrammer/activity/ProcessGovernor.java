@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// limits the number of external processes running at once, both in total and for each tool;
+// limits default to the processor count and can be set with the system properties
+// uk.theretiredprogrammer.activity.processlimit and uk.theretiredprogrammer.activity.processlimit.<tool>
+public class ProcessGovernor {
+
+    private static final String LIMITPROPERTY = "uk.theretiredprogrammer.activity.processlimit";
+
+    private static final Semaphore global = new Semaphore(getLimit(LIMITPROPERTY), true);
+    private static final Map<String, Semaphore> tools = new ConcurrentHashMap<>();
+
+    private static int getLimit(String property) {
+        return Math.max(1, Integer.getInteger(property, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public static Slot acquire(String command, Consumer<String> queuedreporter) throws InterruptedException {
+        String tool = new File(command).getName();
+        Semaphore toollimit = tools.computeIfAbsent(tool, t -> new Semaphore(getLimit(LIMITPROPERTY + "." + t), true));
+        boolean reported = false;
+        if (!toollimit.tryAcquire()) {
+            queuedreporter.accept("... queued - waiting for a " + tool + " process slot");
+            reported = true;
+            toollimit.acquire();
+        }
+        try {
+            if (!global.tryAcquire()) {
+                if (!reported) {
+                    queuedreporter.accept("... queued - waiting for a process slot");
+                }
+                global.acquire();
+            }
+        } catch (InterruptedException ex) {
+            toollimit.release();
+            throw ex;
+        }
+        return new Slot(toollimit);
+    }
+
+    public static class Slot {
+
+        private final Semaphore toollimit;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot(Semaphore toollimit) {
+            this.toollimit = toollimit;
+        }
+
+        // may be called more than once - the slot is only returned on the first call
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                global.release();
+                toollimit.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.WATCH;
+
+// samples the CPU time and resident memory of a process and its descendants while it runs; on Linux
+// these are read from /proc, elsewhere only the CPU time of the process itself is available;
+// nothing can be read once the process has ended, so the figures are those of the last sample
+// and are not given for a process which ended before it could be sampled again; sampling is
+// kept infrequent, as it shares the single WATCH thread with the IO Tab and timeout checks
+public class ProcessResources {
+
+    private static final long SAMPLEINTERVAL = 1000; // ms
+    private static final boolean PROCFS = Files.isReadable(Path.of("/proc/self/stat"));
+    private static final long CLOCKTICKSPERSECOND = PROCFS ? getClockTicks() : -1; // USER_HZ, -1 if unknown
+
+    private final ProcessHandle root;
+    private ScheduledFuture<?> sampler;
+    private volatile long cputime = -1; // ms
+    private volatile long peakrss = -1; // bytes
+    private volatile int samples = 0;
+
+    public ProcessResources(ProcessHandle root) {
+        this.root = root;
+        sample();
+        sampler = ActivityScheduler.schedule(WATCH, () -> resample(), SAMPLEINTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (sampler != null) {
+            sampler.cancel(false);
+            sampler = null;
+        }
+    }
+
+    public long getCPUTime() {
+        return samples < 2 ? -1 : cputime;
+    }
+
+    public long getPeakRSS() {
+        return samples < 2 ? -1 : peakrss;
+    }
+
+    private synchronized void resample() {
+        if (sampler != null && root.isAlive()) {
+            sample();
+            sampler = ActivityScheduler.schedule(WATCH, () -> resample(), SAMPLEINTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // CPU time only grows, so the latest sample is kept; memory is the largest total seen
+    private void sample() {
+        samples++;
+        if (PROCFS) {
+            List<ProcessHandle> tree = Stream.concat(Stream.of(root), root.descendants()).collect(Collectors.toList());
+            long ticks = 0;
+            long rss = 0;
+            for (ProcessHandle process : tree) {
+                ticks += CLOCKTICKSPERSECOND > 0 ? readCPUTicks(process.pid()) : 0;
+                rss += readRSS(process.pid());
+            }
+            if (CLOCKTICKSPERSECOND > 0) {
+                cputime = Math.max(cputime, ticks * 1000 / CLOCKTICKSPERSECOND);
+            } else {
+                sampleCPUDuration();
+            }
+            peakrss = Math.max(peakrss, Math.max(rss, readPeakRSS(root.pid())));
+        } else {
+            sampleCPUDuration();
+        }
+    }
+
+    private void sampleCPUDuration() {
+        root.info().totalCpuDuration().map(Duration::toMillis)
+                .ifPresent(cpu -> cputime = Math.max(cputime, cpu));
+    }
+
+    // the tick rate of the /proc CPU times is set by the kernel build, so it is asked for rather than assumed
+    private static long getClockTicks() {
+        try {
+            Process getconf = new ProcessBuilder("getconf", "CLK_TCK").redirectErrorStream(true).start();
+            String ticks = new String(getconf.getInputStream().readAllBytes()).trim();
+            if (getconf.waitFor(2, TimeUnit.SECONDS) && getconf.exitValue() == 0) {
+                long value = Long.parseLong(ticks);
+                return value > 0 ? value : -1;
+            }
+            getconf.destroy();
+        } catch (IOException | RuntimeException ex) {
+            // not available - the CPU time of the process itself is used instead
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return -1;
+    }
+
+    // utime + stime + cutime + cstime - the fields after the bracketed command name, which may contain spaces
+    private long readCPUTicks(long pid) {
+        try {
+            String stat = Files.readString(Path.of("/proc", Long.toString(pid), "stat"));
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]) + Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+        } catch (IOException | RuntimeException ex) {
+            return 0; // the process has ended
+        }
+    }
+
+    private long readRSS(long pid) {
+        return readStatus(pid, "VmRSS:");
+    }
+
+    private long readPeakRSS(long pid) {
+        return readStatus(pid, "VmHWM:");
+    }
+
+    private long readStatus(long pid, String key) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith(key)) {
+                    return Long.parseLong(line.substring(key.length()).trim().split("\\s+")[0]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            // the process has ended
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("uk.theretiredprogrammer.activity.ProcessSpawn")
+@Label("Activity Process Spawn")
+@Description("The time taken to start an external process")
+@Category({"Activities and Actions"})
+@StackTrace(false)
+public class ProcessSpawnEvent extends Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Arguments")
+    public String args;
+
+    @Label("Directory")
+    public String directory;
+
+    public ProcessSpawnEvent(String command, String args, String directory) {
+        this.command = command;
+        this.args = args;
+        this.directory = directory;
+    }
+}
@@ -15,13 +15,24 @@
  */
 package uk.theretiredprogrammer.activity;
 
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.netbeans.api.io.InputOutput;
 import org.openide.execution.NbProcessDescriptor;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileUtil;
 import static uk.theretiredprogrammer.activity.ActivityExecutor.DataTransferStyle.STREAM_OR_CHARACTER_TRANSFER;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.WATCH;
 
-public class ProgramActivityExecutor implements ActivityExecutor {
+public class ProgramActivityExecutor implements CommandActivityExecutor {
+
+    private static final long TERMINATEGRACE = 3; // seconds
 
     private static String substituteNODEPATH(String source, FileObject node) {
         return source.replace("${NODEPATH}", FileUtil.toFile(node).getAbsolutePath());
@@ -30,7 +41,14 @@ public class ProgramActivityExecutor implements ActivityExecutor {
     private final String command;
     private final String args;
     private final FileObject dir;
-    private Process process;
+    private volatile Process process;
+    private boolean governed = true;
+    private Consumer<String> queuedreporter = message -> {
+    };
+    private ProcessGovernor.Slot slot;
+    private volatile boolean cancelled;
+    private Thread acquiring;
+    private ProcessResources resources;
 
     public ProgramActivityExecutor(final String command, final String args, FileObject dir) {
         this.command = command;
@@ -38,6 +56,31 @@ public class ProgramActivityExecutor implements ActivityExecutor {
         this.dir = dir;
     }
 
+    @Override
+    public String getCommandLine() {
+        return command + " " + substituteNODEPATH(args, dir);
+    }
+
+    @Override
+    public FileObject getDirectory() {
+        return dir;
+    }
+
+    // later stages of a pipeline run within the slot of the first stage, as they cannot
+    // complete without each other
+    public void setGoverned(boolean governed) {
+        this.governed = governed;
+    }
+
+    // a cancel from an earlier run is forgotten
+    public void resetCancel() {
+        cancelled = false;
+    }
+
+    public void setQueuedReporter(Consumer<String> queuedreporter) {
+        this.queuedreporter = queuedreporter;
+    }
+
     @Override
     public DeviceDescriptor getDeviceDescriptor() {
         return null;
@@ -46,11 +89,64 @@ public class ProgramActivityExecutor implements ActivityExecutor {
     @Override
     public void open(ConnectionSTDIN stdin, ConnectionSTDOUT stdout, ConnectionSTDERR stderr, InputOutput io) throws Exception {
         process = null;
-        NbProcessDescriptor processdescriptor = new NbProcessDescriptor(command, substituteNODEPATH(args, dir));
-        process = processdescriptor.exec(null, null, FileUtil.toFile(dir));
-        stdin.set(STREAM_OR_CHARACTER_TRANSFER, () -> process.getOutputStream(), () -> process.outputWriter());
-        stdout.set(STREAM_OR_CHARACTER_TRANSFER, () -> process.getInputStream(), () -> process.inputReader());
-        stderr.set(process.errorReader());
+        String substitutedargs = substituteNODEPATH(args, dir);
+        File workingdir = FileUtil.toFile(dir);
+        ProcessSpawnEvent event = new ProcessSpawnEvent(command, substitutedargs, String.valueOf(workingdir));
+        slot = governed ? acquireSlot() : null;
+        event.begin();
+        try {
+            NbProcessDescriptor processdescriptor = new NbProcessDescriptor(command, substitutedargs);
+            process = processdescriptor.exec(null, null, workingdir);
+        } catch (Exception ex) {
+            releaseSlot();
+            throw ex;
+        }
+        event.commit();
+        // a cancel while the process was starting could not reach it
+        if (cancelled) {
+            terminate(process.toHandle());
+        }
+        // the slot is returned as soon as the process ends, without waiting for the Activity to close
+        ProcessGovernor.Slot runslot = slot;
+        if (runslot != null) {
+            process.onExit().thenRun(() -> runslot.release());
+        }
+        ProcessResources runresources = new ProcessResources(process.toHandle());
+        resources = runresources;
+        process.onExit().thenRun(() -> runresources.stop());
+        stdin.set(STREAM_OR_CHARACTER_TRANSFER, () -> process.getOutputStream(), () -> process.outputWriter(stdin.getCharset()));
+        stdout.set(STREAM_OR_CHARACTER_TRANSFER, () -> process.getInputStream(), () -> process.inputReader(stdout.getCharset()));
+        stderr.set(process.errorReader(stderr.getCharset()));
+    }
+
+    // the wait for a slot is interrupted by a cancel
+    private ProcessGovernor.Slot acquireSlot() throws InterruptedException {
+        synchronized (this) {
+            if (cancelled) {
+                throw new CancellationException("Activity cancelled while waiting for a process slot");
+            }
+            acquiring = Thread.currentThread();
+        }
+        ProcessGovernor.Slot acquired = null;
+        try {
+            acquired = ProcessGovernor.acquire(command, queuedreporter);
+        } catch (InterruptedException ex) {
+            if (!cancelled) {
+                throw ex;
+            }
+        } finally {
+            synchronized (this) {
+                acquiring = null;
+            }
+        }
+        if (cancelled) {
+            Thread.interrupted(); // clears a cancel which arrived as the slot was acquired
+            if (acquired != null) {
+                acquired.release();
+            }
+            throw new CancellationException("Activity cancelled while waiting for a process slot");
+        }
+        return acquired;
     }
 
     @Override
@@ -59,23 +155,61 @@ public class ProgramActivityExecutor implements ActivityExecutor {
     }
 
     @Override
-    public void waitUntilCompletion() throws Exception {
-        if (process != null) {
-            process.waitFor();
-        }
+    public CompletableFuture<Void> getCompletion() {
+        return process == null
+                ? CompletableFuture.completedFuture(null)
+                : process.onExit().thenApply(p -> null);
+    }
+
+    @Override
+    public int getExitCode() {
+        return process == null ? -1 : process.exitValue();
+    }
+
+    public ProcessResources getResources() {
+        return resources;
     }
 
     @Override
     public void close() {
         if (process != null) {
-            process.destroy();
+            terminate(process.toHandle());
         }
+        releaseSlot();
     }
 
     @Override
     public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            if (acquiring != null) {
+                acquiring.interrupt();
+            }
+        }
         if (process != null) {
-            process.destroy();
+            terminate(process.toHandle());
+        }
+        releaseSlot();
+    }
+
+    // the whole process tree is asked to terminate, and any process still running after the grace
+    // period is killed
+    private void terminate(ProcessHandle root) {
+        List<ProcessHandle> tree = Stream.concat(root.descendants(), Stream.of(root))
+                .filter(ProcessHandle::isAlive)
+                .collect(Collectors.toList());
+        if (tree.isEmpty()) {
+            return;
+        }
+        tree.forEach(ProcessHandle::destroy);
+        ActivityScheduler.schedule(WATCH, () -> tree.stream()
+                .filter(ProcessHandle::isAlive)
+                .forEach(ProcessHandle::destroyForcibly), TERMINATEGRACE, TimeUnit.SECONDS);
+    }
+
+    private void releaseSlot() {
+        if (slot != null) {
+            slot.release();
         }
     }
 }
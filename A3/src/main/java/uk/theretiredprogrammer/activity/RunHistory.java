@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.netbeans.api.project.FileOwnerQuery;
+import org.netbeans.api.project.Project;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import uk.theretiredprogrammer.util.UserReporting;
+
+// a log of Activity runs, kept in each project's .a3cache folder - one tab separated line per run:
+// time, label, command, duration (ms), exit code, stdin, stdout and stderr (bytes)
+public class RunHistory {
+
+    private static final String HISTORYFOLDER = ".a3cache";
+    private static final String HISTORYFILE = "runhistory.log";
+    private static final int RECENTRUNS = 5;
+    private static final int MINIMUMRUNS = 10;
+    private static final double REGRESSIONFACTOR = 1.25;
+    private static final int KEEPRUNS = 100;
+    private static final int COMPACTINTERVAL = 200;
+    private static final Map<File, Integer> appends = new HashMap<>();
+
+    public static File getHistoryFile(FileObject projectdir) {
+        return new File(new File(FileUtil.toFile(projectdir), HISTORYFOLDER), HISTORYFILE);
+    }
+
+    public static void record(FileObject dir, String label, String command, long durationms, int exitcode, long stdin, long stdout, long stderr) {
+        Project project = FileOwnerQuery.getOwner(dir);
+        if (project == null) {
+            return;
+        }
+        File history = getHistoryFile(project.getProjectDirectory());
+        String line = String.join("\t", Long.toString(System.currentTimeMillis()), clean(label), clean(command),
+                Long.toString(durationms), Integer.toString(exitcode),
+                Long.toString(stdin), Long.toString(stdout), Long.toString(stderr)) + "\n";
+        synchronized (RunHistory.class) {
+            try {
+                history.getParentFile().mkdirs();
+                Files.writeString(history.toPath(), line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                // compacted on the first run recorded in a session and then every COMPACTINTERVAL runs
+                if (appends.merge(history, 1, Integer::sum) % COMPACTINTERVAL == 1) {
+                    compact(history);
+                }
+            } catch (IOException ex) {
+                UserReporting.warningLogOnly("Unable to record run history in " + history + " - " + ex);
+            }
+        }
+    }
+
+    private static void compact(File history) throws IOException {
+        List<String> lines = Files.readAllLines(history.toPath(), StandardCharsets.UTF_8);
+        List<String> kept = compact(lines);
+        if (kept.size() < lines.size()) {
+            File temp = new File(history.getParentFile(), HISTORYFILE + ".tmp");
+            Files.write(temp.toPath(), kept, StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), history.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // keeps the last KEEPRUNS runs of each label, in their original order
+    static List<String> compact(List<String> lines) {
+        Map<String, Integer> remaining = new HashMap<>();
+        List<String> kept = new ArrayList<>();
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            String[] fields = lines.get(i).split("\t");
+            if (fields.length == 8 && remaining.merge(getLabel(fields), 1, Integer::sum) <= KEEPRUNS) {
+                kept.add(lines.get(i));
+            }
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    private static String getLabel(String[] fields) {
+        return fields[1].isBlank() ? fields[2] : fields[1];
+    }
+
+    private static String clean(String text) {
+        return text == null ? "" : text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    // duration percentiles of the successful runs for each label; a label is flagged as a regression
+    // when the median of its recent runs is well above the median of the runs before them
+    public static List<String> report(FileObject projectdir) throws IOException {
+        File history = getHistoryFile(projectdir);
+        if (!history.isFile()) {
+            return List.of("No run history recorded");
+        }
+        return report(Files.readAllLines(history.toPath(), StandardCharsets.UTF_8));
+    }
+
+    static List<String> report(List<String> lines) {
+        List<String> report = new ArrayList<>();
+        Map<String, List<Long>> durations = new LinkedHashMap<>();
+        Map<String, Integer> failures = new LinkedHashMap<>();
+        for (String line : lines) {
+            String[] fields = line.split("\t");
+            if (fields.length == 8) {
+                try {
+                    String label = getLabel(fields);
+                    if (Integer.parseInt(fields[4]) == 0) {
+                        durations.computeIfAbsent(label, l -> new ArrayList<>()).add(Long.parseLong(fields[3]));
+                    } else {
+                        failures.merge(label, 1, Integer::sum);
+                    }
+                } catch (NumberFormatException ex) {
+                    // skip a damaged line
+                }
+            }
+        }
+        durations.forEach((label, runs) -> report.add(summarise(label, runs, failures.getOrDefault(label, 0))));
+        failures.forEach((label, count) -> {
+            if (!durations.containsKey(label)) {
+                report.add(String.format("%s: no successful runs, %d failed", label, count));
+            }
+        });
+        return report;
+    }
+
+    private static String summarise(String label, List<Long> runs, int failed) {
+        List<Long> sorted = new ArrayList<>(runs);
+        Collections.sort(sorted);
+        StringBuilder sb = new StringBuilder(label).append(": ").append(runs.size()).append(runs.size() == 1 ? " run" : " runs");
+        if (failed > 0) {
+            sb.append(" (").append(failed).append(" failed)");
+        }
+        sb.append(String.format(", p50 %.1f s, p95 %.1f s, latest successful %.1f s",
+                percentile(sorted, 50) / 1e3, percentile(sorted, 95) / 1e3, runs.get(runs.size() - 1) / 1e3));
+        if (runs.size() >= MINIMUMRUNS) {
+            List<Long> earlier = new ArrayList<>(runs.subList(0, runs.size() - RECENTRUNS));
+            List<Long> recent = new ArrayList<>(runs.subList(runs.size() - RECENTRUNS, runs.size()));
+            Collections.sort(earlier);
+            Collections.sort(recent);
+            long before = percentile(earlier, 50);
+            long now = percentile(recent, 50);
+            if (before > 0 && now > before * REGRESSIONFACTOR) {
+                sb.append(String.format(" - REGRESSION: recent median %.1f s, was %.1f s", now / 1e3, before / 1e3));
+            }
+        }
+        return sb.toString();
+    }
+
+    // nearest-rank percentile of a sorted list
+    private static long percentile(List<Long> sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+}
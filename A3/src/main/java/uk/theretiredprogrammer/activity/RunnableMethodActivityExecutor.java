@@ -15,12 +15,15 @@
  */
 package uk.theretiredprogrammer.activity;
 
+import java.util.concurrent.CompletableFuture;
 import org.netbeans.api.io.InputOutput;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.METHOD;
 
 public class RunnableMethodActivityExecutor implements ActivityExecutor {
 
     private final Runnable method;
-    private Thread runningthread;
+    private volatile Thread runningthread;
+    private CompletableFuture<Void> completion;
 
     public RunnableMethodActivityExecutor(Runnable method) {
         this.method = method;
@@ -35,15 +38,36 @@ public class RunnableMethodActivityExecutor implements ActivityExecutor {
     public void open(ConnectionSTDIN stdin, ConnectionSTDOUT stdout, ConnectionSTDERR stderr, InputOutput io) throws Exception {
     }
 
+    // with virtual threads, the method runs on its own thread, so an asynchronous run releases its pooled thread;
+    // otherwise the method runs on the called thread to completion before returning
     @Override
     public void run() {
-        runningthread = Thread.currentThread();
-        method.run();
+        if (ActivityScheduler.isVirtual(METHOD)) {
+            completion = new CompletableFuture<>();
+            ActivityScheduler.submit(METHOD, () -> {
+                runningthread = Thread.currentThread();
+                try {
+                    method.run();
+                    completion.complete(null);
+                } catch (RuntimeException | Error ex) {
+                    completion.completeExceptionally(ex);
+                }
+            });
+        } else {
+            runningthread = Thread.currentThread();
+            method.run();
+            completion = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
     }
 
-    //    No wait required as method runs on called thread to completion before returning
     @Override
-    public void waitUntilCompletion() {
+    public int getExitCode() {
+        return 0;
     }
 
     @Override
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+// passes each write to every sink, sharing the caller's buffer rather than copying it
+public class TeeWriter extends Writer {
+
+    private final List<Writer> sinks;
+
+    public TeeWriter(List<Writer> sinks) {
+        this.sinks = sinks;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (Writer sink : sinks) {
+            sink.write(cbuf, off, len);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (Writer sink : sinks) {
+            sink.write(str, off, len);
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        for (Writer sink : sinks) {
+            sink.write(c);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (Writer sink : sinks) {
+            sink.flush();
+        }
+    }
+
+    // every sink is closed, even if an earlier one fails
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Writer sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException ex) {
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -25,6 +25,8 @@ import uk.theretiredprogrammer.actions.NodeActionsImp;
 import uk.theretiredprogrammer.actions.SaveBeforeAction;
 import uk.theretiredprogrammer.actions.SaveBeforeActionImp;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityBatch;
+import uk.theretiredprogrammer.activity.ActivityBatchImp;
 import uk.theretiredprogrammer.activity.ActivityImp;
 
 @ServiceProvider(service = A3Factory.class)
@@ -40,6 +42,11 @@ public class A3FactoryImp implements A3Factory {
         return new ActivityImp();
     }
 
+    @Override
+    public ActivityBatch createActivityBatch() {
+        return new ActivityBatchImp();
+    }
+
     @Override
     public NodeActions createNodeActions(FileObject filefolder, String actionpropertiesfilename) {
         return new NodeActionsImp(filefolder, actionpropertiesfilename);
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.actions;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import uk.theretiredprogrammer.util.ApplicationException;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActionsPipelineTest {
+
+    public ActionsPipelineTest() {
+    }
+
+    private ActionsPipeline pipeline(int[]... dependencies) {
+        ActionsPipeline pipeline = new ActionsPipeline("Run pipeline test");
+        for (int i = 0; i < dependencies.length; i++) {
+            List<Integer> dependson = new ArrayList<>();
+            for (int dependency : dependencies[i]) {
+                dependson.add(dependency);
+            }
+            pipeline.add(i + 1, "command " + (i + 1), null, dependson, true);
+        }
+        return pipeline;
+    }
+
+    @Test
+    public void testValidate_independent() {
+        System.out.println("validate_independent");
+        ActionsPipeline instance = pipeline(new int[]{}, new int[]{}, new int[]{});
+        assertDoesNotThrow(() -> instance.validate());
+    }
+
+    @Test
+    public void testValidate_diamond() {
+        System.out.println("validate_diamond");
+        ActionsPipeline instance = pipeline(new int[]{}, new int[]{1}, new int[]{1}, new int[]{2, 3});
+        assertDoesNotThrow(() -> instance.validate());
+    }
+
+    @Test
+    public void testValidate_undefined() {
+        System.out.println("validate_undefined");
+        ActionsPipeline instance = pipeline(new int[]{}, new int[]{5});
+        ApplicationException ex = assertThrows(ApplicationException.class, () -> instance.validate());
+        assertEquals("Command 2 depends on an undefined command 5", ex.getMessage());
+    }
+
+    @Test
+    public void testValidate_selfcycle() {
+        System.out.println("validate_selfcycle");
+        ActionsPipeline instance = pipeline(new int[]{1});
+        ApplicationException ex = assertThrows(ApplicationException.class, () -> instance.validate());
+        assertEquals("Command dependencies contain a cycle", ex.getMessage());
+    }
+
+    @Test
+    public void testValidate_cycle() {
+        System.out.println("validate_cycle");
+        ActionsPipeline instance = pipeline(new int[]{}, new int[]{1, 4}, new int[]{2}, new int[]{3});
+        ApplicationException ex = assertThrows(ApplicationException.class, () -> instance.validate());
+        assertEquals("Command dependencies contain a cycle", ex.getMessage());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineSequenceWriterTest {
+
+    private final List<String> lines = new ArrayList<>();
+    private final LineSequenceWriter instance = new LineSequenceWriter(line -> lines.add(line.toString()));
+
+    public LineSequenceWriterTest() {
+    }
+
+    private void write(String... parts) {
+        for (String part : parts) {
+            instance.write(part.toCharArray(), 0, part.length());
+        }
+    }
+
+    @Test
+    public void testWrite_terminators() {
+        System.out.println("write_terminators");
+        write("one\ntwo\rthree\r\nfour\n");
+        assertEquals(List.of("one", "two", "three", "four"), lines);
+    }
+
+    @Test
+    public void testWrite_splitAcrossWrites() {
+        System.out.println("write_splitAcrossWrites");
+        write("on", "e\r", "\ntw", "o\r", "\r", "\n");
+        assertEquals(List.of("one", "two", ""), lines);
+    }
+
+    @Test
+    public void testWrite_emptyLines() {
+        System.out.println("write_emptyLines");
+        write("\n\r\n\r");
+        assertEquals(List.of("", "", ""), lines);
+    }
+
+    @Test
+    public void testWrite_longLine() {
+        System.out.println("write_longLine");
+        String longline = "x".repeat(1000);
+        write(longline.substring(0, 300), longline.substring(300), "\n");
+        assertEquals(List.of(longline), lines);
+    }
+
+    @Test
+    public void testClose_unterminatedLine() {
+        System.out.println("close_unterminatedLine");
+        write("one\ntwo");
+        assertEquals(List.of("one"), lines);
+        instance.close();
+        assertEquals(List.of("one", "two"), lines);
+    }
+
+    @Test
+    public void testClose_afterTerminator() {
+        System.out.println("close_afterTerminator");
+        write("one\r\n");
+        instance.close();
+        assertEquals(List.of("one"), lines);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunHistoryTest {
+
+    public RunHistoryTest() {
+    }
+
+    private String run(String label, long durationms, int exitcode) {
+        return String.join("\t", "0", label, "command", Long.toString(durationms), Integer.toString(exitcode), "0", "0", "0");
+    }
+
+    @Test
+    public void testReport_percentiles() {
+        System.out.println("report_percentiles");
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            lines.add(run("build", i * 1000, 0));
+        }
+        lines.add(run("build", 9000, 1));
+        List<String> report = RunHistory.report(lines);
+        assertEquals(1, report.size());
+        assertEquals("build: 4 runs (1 failed), p50 2.0 s, p95 4.0 s, latest successful 4.0 s", report.get(0));
+    }
+
+    @Test
+    public void testReport_regression() {
+        System.out.println("report_regression");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lines.add(run("build", 1000, 0));
+        }
+        for (int i = 0; i < 5; i++) {
+            lines.add(run("build", 2000, 0));
+        }
+        List<String> report = RunHistory.report(lines);
+        assertEquals("build: 10 runs, p50 1.0 s, p95 2.0 s, latest successful 2.0 s - REGRESSION: recent median 2.0 s, was 1.0 s", report.get(0));
+    }
+
+    @Test
+    public void testReport_noRegression() {
+        System.out.println("report_noRegression");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            lines.add(run("build", 1000 + i * 10, 0));
+        }
+        assertFalse(RunHistory.report(lines).get(0).contains("REGRESSION"));
+    }
+
+    @Test
+    public void testReport_noSuccessfulRuns() {
+        System.out.println("report_noSuccessfulRuns");
+        List<String> report = RunHistory.report(List.of(run("build", 1000, 2), run("build", 1000, 2), "damaged line"));
+        assertEquals(List.of("build: no successful runs, 2 failed"), report);
+    }
+
+    @Test
+    public void testCompact() {
+        System.out.println("compact");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            lines.add(run("build", i, 0));
+        }
+        lines.add(run("test", 1, 0));
+        List<String> kept = RunHistory.compact(lines);
+        assertEquals(101, kept.size());
+        assertEquals(run("build", 50, 0), kept.get(0));
+        assertEquals(run("test", 1, 0), kept.get(100));
+    }
+}
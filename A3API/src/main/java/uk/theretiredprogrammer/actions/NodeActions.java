@@ -15,8 +15,11 @@
  */
 package uk.theretiredprogrammer.actions;
 
+import java.util.concurrent.Callable;
 import java.util.function.Consumer;
 import javax.swing.Action;
+import org.openide.filesystems.FileObject;
+import uk.theretiredprogrammer.activity.Activity;
 
 /**
  * NodeActions creates DynamicActions for a node, using a properties file to
@@ -103,6 +106,24 @@ public interface NodeActions {
      */
     public NodeActions setNodeActions(DynamicAction... actions);
 
+    /**
+     * Add a "Run on change" toggle to the Node's actions popup.
+     *
+     * While enabled, any change to files within the watched folders causes a
+     * new Activity to be created and run, once changes have stopped for a short
+     * period, so that runs never share an Activity with other actions. A run
+     * in progress is cancelled when a newer change arrives, and changes arriving
+     * during a run result in a single further run.
+     *
+     * The watched folders should not contain the Activity's outputs.
+     *
+     * @param activityfactory creates the Activity for each run
+     * @param message the initial message for each run
+     * @param folders the folders to be watched (null entries are ignored)
+     * @return this instance
+     */
+    public NodeActions setRunOnChange(Callable<Activity> activityfactory, String message, FileObject... folders);
+
     /**
      * Get the array of enabled actions for this node.
      *
@@ -20,6 +20,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import org.openide.filesystems.FileObject;
 import org.openide.loaders.DataObject;
@@ -76,11 +80,99 @@ public interface Activity {
      */
     public Activity setExternalProcess(final String command, final String args, FileObject dir);
 
+    /**
+     * Request that the Activity is run by a persistent worker process, which
+     * is started on first use and kept running for later Activities of the
+     * same project, so avoiding the startup cost of the command on each run.
+     *
+     * Requests are handled one at a time, in the order they are made. Each is
+     * sent on the worker's STDIN as a line "R length" followed by the UTF-8
+     * encoded request, and a line "C" asks the worker to abandon the request
+     * it is running. The worker replies with frames: a line "O length" or "E
+     * length" followed by that number of bytes of STDOUT or STDERR output,
+     * ending with a line "X exitcode". The worker should exit when its STDIN
+     * is closed.
+     *
+     * Cancelling the Activity only abandons its own request; the worker is
+     * only stopped if it does not abandon the request promptly. The worker is
+     * stopped after 5 minutes without a request, and is restarted if it is
+     * found to have ended. Its STDERR is appended to a log in the project's
+     * .a3cache folder.
+     *
+     * @param command the worker command
+     * @param args the worker command arguments
+     * @param request the request to be sent to the worker
+     * @param dir the working directory
+     * @return this instance
+     */
+    public Activity setPersistentProcess(final String command, final String args, final String request, FileObject dir);
+
+    /**
+     * Request that the Activity is run by a persistent worker process, with a
+     * given idle timeout.
+     *
+     * @see #setPersistentProcess(java.lang.String, java.lang.String,
+     * java.lang.String, org.openide.filesystems.FileObject)
+     * @param command the worker command
+     * @param args the worker command arguments
+     * @param request the request to be sent to the worker
+     * @param dir the working directory
+     * @param idletimeout the time without a request after which the worker is
+     * stopped (seconds)
+     * @return this instance
+     */
+    public Activity setPersistentProcess(final String command, final String args, final String request, FileObject dir, long idletimeout);
+
+    /**
+     * Request that an External Process is only run when its inputs have
+     * changed. This can also be used with a Persistent Process, where the
+     * request takes the place of the arguments.
+     *
+     * A fingerprint of the content of the inputs, the command, its arguments
+     * and directory is recorded in the project's .a3cache folder after each
+     * successful run. The External Process is skipped when the fingerprint is
+     * unchanged and the outputs are as that run left them.
+     *
+     * @param inputs the files which the External Process reads
+     * @param outputs the files which the External Process creates
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity cacheKey(List<File> inputs, List<File> outputs) throws ApplicationException;
+
+    /**
+     * Set a time limit for each run of the Activity.
+     *
+     * When the limit is reached the Activity is cancelled. For an External
+     * Process, the process and all its descendants are asked to terminate,
+     * and any still running a few seconds later are killed. The run fails,
+     * and the result of an asynchronous run has a TimeoutException as its
+     * cause.
+     *
+     * @param timeout the time limit
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity timeout(Duration timeout) throws ApplicationException;
+
+    /**
+     * Set the priority at which the Activity is run when run asynchronously.
+     *
+     * The default priority is BUILD.
+     *
+     * @param priority the priority
+     * @return this instance
+     */
+    public Activity priority(ActivityScheduler.Priority priority);
+
     /**
      * Run the configured Activity
      *
      * Wrapping the IOTab output with a initial message and a final "... done"
-     * message when the activity has finished.
+     * message when the activity has finished, which includes the elapsed time
+     * and the size of the output (eg "... done in 2.3 s, 14.0 MB stdout") and,
+     * for an External Process, the CPU time and peak memory used by the
+     * process and its descendants.
      *
      * @param message the initial message
      */
@@ -91,6 +183,50 @@ public interface Activity {
      */
     public void run();
 
+    /**
+     * Run the configured Activity asynchronously.
+     *
+     * The Activity is started on a pooled thread, which is released once the
+     * Activity has started, allowing Activities to be chained or run
+     * concurrently and then joined. Output to the IOTab is wrapped as for
+     * run(String message).
+     *
+     * @param message the initial message
+     * @return a CompletableFuture completed with the result of the Activity
+     */
+    public CompletableFuture<ActivityResult> runAsync(String message);
+
+    /**
+     * Run the configured Activity asynchronously.
+     *
+     * @return a CompletableFuture completed with the result of the Activity
+     */
+    public CompletableFuture<ActivityResult> runAsync();
+
+    /**
+     * Cancel the Activity if it is running, together with any Activities
+     * piped to or from it.
+     */
+    public void cancel();
+
+    /**
+     * Pipe the STDOUT of this Activity into the STDIN of the next Activity.
+     *
+     * The stages are connected by a bounded in-memory pipe - a stage writing
+     * faster than the next stage reads is held until there is space. Running
+     * the first stage runs every stage of the pipeline concurrently, and
+     * completes when the last stage completes. Cancelling any stage (for
+     * example by closing its IO Tab) cancels them all.
+     *
+     * Longer pipelines are built by piping the next Activity to a further
+     * Activity before the first is run.
+     *
+     * @param next the downstream Activity
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity pipeTo(Activity next) throws ApplicationException;
+
     // the IOTab
     /**
      * Clear the IOTab before each usage.
@@ -99,6 +235,18 @@ public interface Activity {
      */
     public Activity ioTabClear();
 
+    /**
+     * Limit the output written to the IOTab by STDOUT and STDERR.
+     *
+     * Once a stream has written the limit, its remaining output is written to
+     * a log file, and a link to that file is shown in the IOTab.
+     *
+     * @param limit the maximum number of characters per stream (0 = no limit)
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity ioTabLimit(long limit) throws ApplicationException;
+
     // STDIN configuration
     /**
      * STDIN is an empty file;
@@ -161,6 +309,31 @@ public interface Activity {
      */
     public Activity stdinFromIOSTDIN() throws ApplicationException;
 
+    /**
+     * Set the buffer used when STDIN is transferred as a byte stream.
+     *
+     * One end of the transfer is always the External Process or device, so the
+     * buffer is used even when the other end is a file.
+     *
+     * @param buffersize the buffer size (bytes)
+     * @param direct true if a direct buffer is to be used
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity stdinBuffer(int buffersize, boolean direct) throws ApplicationException;
+
+    /**
+     * Set the character set used when STDIN is transferred as characters.
+     *
+     * The default is the platform character set. It is not used when STDIN
+     * is transferred as a byte stream.
+     *
+     * @param charset the character set
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity stdinCharset(Charset charset) throws ApplicationException;
+
     // STDOUT configuration
     /**
      * STDOUT is discarded.
@@ -231,6 +404,58 @@ public interface Activity {
      */
     public Activity stdoutToIOSTDOUT() throws ApplicationException;
 
+    /**
+     * STDOUT is passed, a line at a time, to a method.
+     *
+     * Lines are collected in a buffer which is reused, so no String is
+     * created for each line; the CharSequence passed to the method is only
+     * valid until the method returns (use toString() to keep a line).
+     *
+     * @param callback the method to be called with each line (without its
+     * line terminator)
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity onStdoutLine(Consumer<CharSequence> callback) throws ApplicationException;
+
+    /**
+     * STDOUT to several destinations at once, for example both the IOTab and
+     * a log file.
+     *
+     * The output is read once and each piece is written to every sink in
+     * turn.
+     *
+     * @param sinks the destinations
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity stdoutTo(OutputSink... sinks) throws ApplicationException;
+
+    /**
+     * Set the buffer used when STDOUT is transferred as a byte stream.
+     *
+     * One end of the transfer is always the External Process or device, so the
+     * buffer is used even when the other end is a file.
+     *
+     * @param buffersize the buffer size (bytes)
+     * @param direct true if a direct buffer is to be used
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity stdoutBuffer(int buffersize, boolean direct) throws ApplicationException;
+
+    /**
+     * Set the character set used when STDOUT is transferred as characters.
+     *
+     * The default is the platform character set. It is not used when STDOUT
+     * is transferred as a byte stream.
+     *
+     * @param charset the character set
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity stdoutCharset(Charset charset) throws ApplicationException;
+
     // STDERR configuration
     /**
      * STDERR is discarded.
@@ -240,6 +465,17 @@ public interface Activity {
      */
     public Activity stderrToDiscard() throws ApplicationException;
 
+    /**
+     * Set the character set used for STDERR.
+     *
+     * The default is the platform character set.
+     *
+     * @param charset the character set
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity stderrCharset(Charset charset) throws ApplicationException;
+
     /**
      * STDERR to a FileObject.
      *
@@ -300,6 +536,16 @@ public interface Activity {
      * @throws ApplicationException a failure Exception
      */
     public Activity stderrToIOSTDOUT() throws ApplicationException;
+
+    /**
+     * STDERR to several destinations at once.
+     *
+     * @see #stdoutTo(uk.theretiredprogrammer.activity.OutputSink...)
+     * @param sinks the destinations
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public Activity stderrTo(OutputSink... sinks) throws ApplicationException;
     
     /**
      * Convenience variable - the OS specific line terminator
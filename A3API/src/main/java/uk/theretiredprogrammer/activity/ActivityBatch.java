@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import uk.theretiredprogrammer.util.ApplicationException;
+
+/**
+ * The Interface for the ActivityBatch
+ *
+ * Methods to configure and run a group of Activities, typically one for each
+ * item of a multiple selection. The Activities are run concurrently, and the
+ * IO Tab output of each Activity is written to its IO Tab as a separate section
+ * once that Activity has completed, followed by a summary once the batch has
+ * completed.
+ *
+ */
+public interface ActivityBatch {
+
+    /**
+     * Request the batch summary is written to an IO Tab. If not requested the
+     * IO Tab of the first Activity is used.
+     *
+     * @param iotabname the name of the tab
+     * @return this instance
+     */
+    public ActivityBatch needsIOTab(String iotabname);
+
+    /**
+     * Set the maximum number of Activities to be run at the same time.
+     *
+     * The default is the number of available processors. A concurrency of 1
+     * runs the Activities one after another, writing their output directly to
+     * their IO Tabs.
+     *
+     * @param concurrency the maximum number of concurrent Activities
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public ActivityBatch setConcurrency(int concurrency) throws ApplicationException;
+
+    /**
+     * Add a configured Activity to the batch.
+     *
+     * @param activity the Activity
+     * @param message the initial message for the Activity's output section
+     * @return this instance
+     * @throws ApplicationException a failure Exception
+     */
+    public ActivityBatch add(Activity activity, String message) throws ApplicationException;
+
+    /**
+     * Run all the Activities in the batch, returning when all have completed.
+     *
+     * @param message the initial message
+     */
+    public void run(String message);
+}
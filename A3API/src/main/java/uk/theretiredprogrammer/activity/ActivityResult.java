@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.time.Duration;
+
+/**
+ * The result of running an Activity.
+ */
+public class ActivityResult {
+
+    private final int exitcode;
+    private final Duration duration;
+    private final long stdin;
+    private final long stdout;
+    private final long stderr;
+    private final Exception cause;
+
+    /**
+     * Create an ActivityResult
+     *
+     * @param exitcode the exit code (0 for a method or device)
+     * @param duration the time from start to completion
+     * @param stdin the bytes transferred to STDIN
+     * @param stdout the bytes transferred from STDOUT
+     * @param stderr the bytes transferred from STDERR
+     * @param cause the failure cause, or null if the Activity did not fail
+     */
+    public ActivityResult(int exitcode, Duration duration, long stdin, long stdout, long stderr, Exception cause) {
+        this.exitcode = exitcode;
+        this.duration = duration;
+        this.stdin = stdin;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.cause = cause;
+    }
+
+    /**
+     * Test if the Activity completed without failure and with a zero exit
+     * code.
+     *
+     * @return true if successful
+     */
+    public boolean isSuccess() {
+        return cause == null && exitcode == 0;
+    }
+
+    /**
+     * Get the exit code of the Activity.
+     *
+     * @return the exit code (0 for a method or device; -1 if the Activity
+     * failed to run)
+     */
+    public int getExitCode() {
+        return exitcode;
+    }
+
+    /**
+     * Get the time the Activity took from start to completion.
+     *
+     * @return the duration
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the number of bytes transferred to STDIN.
+     *
+     * @return the bytes transferred (characters for line transfers)
+     */
+    public long getSTDINTransferred() {
+        return stdin;
+    }
+
+    /**
+     * Get the number of bytes transferred from STDOUT.
+     *
+     * @return the bytes transferred (characters for line transfers)
+     */
+    public long getSTDOUTTransferred() {
+        return stdout;
+    }
+
+    /**
+     * Get the number of bytes transferred from STDERR.
+     *
+     * @return the bytes transferred (characters for line transfers)
+     */
+    public long getSTDERRTransferred() {
+        return stderr;
+    }
+
+    /**
+     * Get the cause of failure.
+     *
+     * @return the failure cause, or null if the Activity did not fail
+     */
+    public Exception getCause() {
+        return cause;
+    }
+}
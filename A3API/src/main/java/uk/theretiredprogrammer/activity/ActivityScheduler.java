@@ -0,0 +1,429 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openide.util.Exceptions;
+import org.openide.util.RequestProcessor;
+import uk.theretiredprogrammer.util.UserReporting;
+
+/**
+ * The shared scheduler for Activities, DataTasks and Actions.
+ *
+ * All background work is submitted to one of a small number of named pools,
+ * which are created once and reused by every Activity, rather than creating a
+ * new RequestProcessor for each piece of work.
+ *
+ * Each pool records its queue depth and the time work has waited before
+ * starting, so that saturation can be observed.
+ *
+ * Work is given a Priority, which selects its pool. Interactive work has a
+ * reserved pool, so it is never queued behind builds. Background work runs at
+ * a low thread priority, and does not start while interactive work is running
+ * or while background work is paused.
+ *
+ * Optionally, on Java 21 or later, pools whose tasks spend their lives
+ * blocked on IO (DataTask copying and method Activities) can run each task on
+ * its own virtual thread, so that hundreds of concurrent streams do not each
+ * hold a platform thread. This is enabled by setting the system property
+ * uk.theretiredprogrammer.activity.virtualthreads to true; otherwise, and on
+ * earlier Javas, pooled platform threads are used.
+ */
+public class ActivityScheduler {
+
+    /**
+     * The named pools.
+     */
+    public static enum Pool {
+
+        /**
+         * Action bodies and Activity runs - these block while their External
+         * Processes run, so the pool is sized well above the processor count;
+         * the number of processes running at once is limited separately.
+         */
+        ACTION("a3-action", 4, 16, false),
+        /**
+         * Completion of asynchronous Activity runs - closing the Activity and
+         * completing its result - kept apart from the ACTION pool so that
+         * completions are not queued behind blocking Action bodies.
+         */
+        COMPLETION("a3-completion", 1, 2, false),
+        /**
+         * DataTask copy loops - these block for the lifetime of their
+         * Activity, so the pool is sized generously to avoid one Activity's
+         * transfers waiting behind another's.
+         */
+        DATATASK("a3-datatask", 4, 16, true),
+        /**
+         * Downstream stages of piped Activities - each blocks on its pipe for
+         * the lifetime of its upstream stage, so these are kept apart from the
+         * ACTION pool where the upstream stage may itself be running.
+         */
+        PIPELINE("a3-pipeline", 2, 8, false),
+        /**
+         * Short periodic checks, such as watching for IO tab closure - a
+         * single thread, so that checks are never queued behind long running
+         * work.
+         */
+        WATCH("a3-watch", 0, 1, false),
+        /**
+         * Interactive Actions, such as formatting the current document -
+         * capacity reserved so that these are not queued behind builds.
+         */
+        INTERACTIVE("a3-interactive", 0, 2, false),
+        /**
+         * Background Activities - run at a low thread priority and held while
+         * interactive work is running or background work is paused.
+         */
+        BACKGROUND("a3-background", 0, 1, false),
+        /**
+         * Method Activities - only used when virtual threads are enabled,
+         * otherwise a method runs on the thread which runs its Activity.
+         */
+        METHOD("a3-method", 1, 4, true);
+
+        private final String processorname;
+        private final int perprocessor;
+        private final int minimum;
+        private final boolean virtualcapable;
+
+        Pool(String processorname, int perprocessor, int minimum, boolean virtualcapable) {
+            this.processorname = processorname;
+            this.perprocessor = perprocessor;
+            this.minimum = minimum;
+            this.virtualcapable = virtualcapable;
+        }
+
+        /**
+         * Get the maximum number of concurrently running tasks for this pool.
+         *
+         * @return the pool throughput
+         */
+        public int getThroughput() {
+            return Math.max(minimum, Runtime.getRuntime().availableProcessors() * perprocessor);
+        }
+    }
+
+    /**
+     * The priority classes for Actions and Activities.
+     */
+    public static enum Priority {
+
+        /**
+         * Short work which the user is waiting on.
+         */
+        INTERACTIVE(Pool.INTERACTIVE),
+        /**
+         * Builds, publishing and conversions - the default.
+         */
+        BUILD(Pool.ACTION),
+        /**
+         * Work which can give way to everything else.
+         */
+        BACKGROUND(Pool.BACKGROUND);
+
+        private final Pool pool;
+
+        Priority(Pool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * Get the pool used for work of this priority.
+         *
+         * @return the pool
+         */
+        public Pool getPool() {
+            return pool;
+        }
+    }
+
+    private static final String VIRTUALPROPERTY = "uk.theretiredprogrammer.activity.virtualthreads";
+    private static final Map<Pool, PoolState> pools = new EnumMap<>(Pool.class);
+    private static final Object backgroundgate = new Object();
+    private static boolean backgroundpaused = false;
+    private static int interactiverunning = 0;
+
+    static {
+        for (Pool pool : Pool.values()) {
+            pools.put(pool, new PoolState(pool));
+        }
+    }
+
+    /**
+     * Submit a task for execution in a pool.
+     *
+     * @param pool the pool
+     * @param task the task to be run
+     * @return the Future representing the task
+     */
+    public static Future<?> submit(Pool pool, Runnable task) {
+        return pools.get(pool).submit(task);
+    }
+
+    /**
+     * Submit a task for execution in a pool after a delay.
+     *
+     * @param pool the pool
+     * @param task the task to be run
+     * @param delay the delay before the task is run
+     * @param unit the unit of the delay
+     * @return the ScheduledFuture representing the task
+     */
+    public static ScheduledFuture<?> schedule(Pool pool, Runnable task, long delay, TimeUnit unit) {
+        return pools.get(pool).schedule(task, delay, unit);
+    }
+
+    /**
+     * Submit a task for execution at a priority.
+     *
+     * @param priority the priority
+     * @param task the task to be run
+     * @return the Future representing the task
+     */
+    public static Future<?> submit(Priority priority, Runnable task) {
+        return submit(priority.getPool(), task);
+    }
+
+    /**
+     * Pause or resume the starting of background work.
+     *
+     * Background work which has already started is not affected.
+     *
+     * @param paused true if background work is to be paused
+     */
+    public static void setBackgroundPaused(boolean paused) {
+        synchronized (backgroundgate) {
+            backgroundpaused = paused;
+            backgroundgate.notifyAll();
+        }
+    }
+
+    /**
+     * Test if background work is paused.
+     *
+     * @return true if paused
+     */
+    public static boolean isBackgroundPaused() {
+        synchronized (backgroundgate) {
+            return backgroundpaused;
+        }
+    }
+
+    /**
+     * Test if a pool runs its tasks on virtual threads.
+     *
+     * @param pool the pool
+     * @return true if each task runs on its own virtual thread
+     */
+    public static boolean isVirtual(Pool pool) {
+        return pools.get(pool).virtualexecutor != null;
+    }
+
+    /**
+     * Get the number of tasks submitted to a pool which have not yet started.
+     *
+     * @param pool the pool
+     * @return the queue depth
+     */
+    public static int getQueueDepth(Pool pool) {
+        return pools.get(pool).queued.get();
+    }
+
+    /**
+     * Get the number of tasks which have started in a pool.
+     *
+     * @param pool the pool
+     * @return the count of started tasks
+     */
+    public static long getStartedCount(Pool pool) {
+        return pools.get(pool).started.get();
+    }
+
+    /**
+     * Get the average time that started tasks waited in the pool's queue.
+     *
+     * @param pool the pool
+     * @return the average wait time (milliseconds)
+     */
+    public static long getAverageWaitTime(Pool pool) {
+        PoolState state = pools.get(pool);
+        long started = state.started.get();
+        return started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(state.totalwait.get() / started);
+    }
+
+    /**
+     * Get the longest time that any started task waited in the pool's queue.
+     *
+     * @param pool the pool
+     * @return the maximum wait time (milliseconds)
+     */
+    public static long getMaximumWaitTime(Pool pool) {
+        return TimeUnit.NANOSECONDS.toMillis(pools.get(pool).maxwait.get());
+    }
+
+    private static class PoolState {
+
+        private final Pool pool;
+        private final RequestProcessor processor;
+        private final Executor virtualexecutor;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong totalwait = new AtomicLong();
+        private final AtomicLong maxwait = new AtomicLong();
+
+        PoolState(Pool pool) {
+            this.pool = pool;
+            processor = new RequestProcessor(pool.processorname, pool.getThroughput());
+            virtualexecutor = pool.virtualcapable ? createVirtualExecutor(pool.processorname) : null;
+        }
+
+        // found by reflection, as the module is built for Java 17
+        private static Executor createVirtualExecutor(String name) {
+            if (!Boolean.parseBoolean(System.getProperty(VIRTUALPROPERTY, "false"))) {
+                return null;
+            }
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderclass = Class.forName("java.lang.Thread$Builder");
+                builder = builderclass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+                ThreadFactory factory = (ThreadFactory) builderclass.getMethod("factory").invoke(builder);
+                return (Executor) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+            } catch (NoSuchMethodException ex) {
+                return null; // before Java 21
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                UserReporting.warningLogOnly("Virtual threads unavailable for " + name + ", using platform threads - " + ex);
+                return null;
+            }
+        }
+
+        Future<?> submit(Runnable task) {
+            MeasuredTask measured = new MeasuredTask(this, task);
+            queued.incrementAndGet();
+            if (virtualexecutor != null) {
+                virtualexecutor.execute(measured);
+            } else if (pool == Pool.BACKGROUND) {
+                processor.post(measured, 0, Thread.MIN_PRIORITY);
+            } else {
+                processor.execute(measured);
+            }
+            return measured;
+        }
+
+        ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+            long due = System.nanoTime() + unit.toNanos(delay);
+            return processor.schedule(() -> {
+                waited(System.nanoTime() - due);
+                task.run();
+            }, delay, unit);
+        }
+
+        void waited(long nanos) {
+            started.incrementAndGet();
+            totalwait.addAndGet(nanos);
+            maxwait.accumulateAndGet(nanos, Math::max);
+            SchedulerWaitEvent event = new SchedulerWaitEvent();
+            if (event.isEnabled()) {
+                event.pool = pool.name();
+                event.waittime = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    private static class MeasuredTask extends FutureTask<Void> {
+
+        private final PoolState state;
+        private final long queuedat = System.nanoTime();
+        private final AtomicBoolean dequeued = new AtomicBoolean();
+
+        MeasuredTask(PoolState state, Runnable task) {
+            super(task, null);
+            this.state = state;
+        }
+
+        @Override
+        public void run() {
+            if (state.pool == Pool.BACKGROUND) {
+                awaitBackgroundStart();
+            }
+            if (dequeued.compareAndSet(false, true)) {
+                state.queued.decrementAndGet();
+                state.waited(System.nanoTime() - queuedat);
+            }
+            if (state.pool == Pool.INTERACTIVE) {
+                interactiveRunning(1);
+                try {
+                    super.run();
+                } finally {
+                    interactiveRunning(-1);
+                }
+            } else {
+                super.run();
+            }
+        }
+
+        private void awaitBackgroundStart() {
+            synchronized (backgroundgate) {
+                while (backgroundpaused || interactiverunning > 0) {
+                    try {
+                        backgroundgate.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void interactiveRunning(int change) {
+            synchronized (backgroundgate) {
+                interactiverunning += change;
+                backgroundgate.notifyAll();
+            }
+        }
+
+        @Override
+        protected void done() {
+            // cancelled before it was started
+            if (dequeued.compareAndSet(false, true)) {
+                state.queued.decrementAndGet();
+            }
+            // report failures, as a plain RequestProcessor post would have done
+            if (!isCancelled()) {
+                try {
+                    get();
+                } catch (ExecutionException ex) {
+                    Exceptions.printStackTrace(ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
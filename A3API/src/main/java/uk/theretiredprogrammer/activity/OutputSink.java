@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import java.io.File;
+import java.util.function.Consumer;
+import org.openide.filesystems.FileObject;
+
+/**
+ * A destination for STDOUT or STDERR, used when the output is to be sent to
+ * several destinations at once.
+ *
+ * @see Activity#stdoutTo(uk.theretiredprogrammer.activity.OutputSink...)
+ * @see Activity#stderrTo(uk.theretiredprogrammer.activity.OutputSink...)
+ */
+public class OutputSink {
+
+    /**
+     * The types of destination.
+     */
+    public static enum SinkType {
+
+        /**
+         * The IOTab STDOUT
+         */
+        IOSTDOUT,
+        /**
+         * The IOTab STDERR
+         */
+        IOSTDERR,
+        /**
+         * A file
+         */
+        FILE,
+        /**
+         * A FileObject
+         */
+        FILEOBJECT,
+        /**
+         * A callback for each line
+         */
+        LINES
+    }
+
+    /**
+     * A sink to the IOTab STDOUT.
+     *
+     * @return the sink
+     */
+    public static OutputSink ioTabSTDOUT() {
+        return new OutputSink(SinkType.IOSTDOUT, null, null, null);
+    }
+
+    /**
+     * A sink to the IOTab STDERR.
+     *
+     * @return the sink
+     */
+    public static OutputSink ioTabSTDERR() {
+        return new OutputSink(SinkType.IOSTDERR, null, null, null);
+    }
+
+    /**
+     * A sink to a file.
+     *
+     * @param file the file
+     * @return the sink
+     */
+    public static OutputSink file(File file) {
+        return new OutputSink(SinkType.FILE, file, null, null);
+    }
+
+    /**
+     * A sink to a file.
+     *
+     * @param fileobject the file
+     * @return the sink
+     */
+    public static OutputSink file(FileObject fileobject) {
+        return new OutputSink(SinkType.FILEOBJECT, null, fileobject, null);
+    }
+
+    /**
+     * A sink which calls a method with each line of output (without its line
+     * terminator).
+     *
+     * @param callback the method to be called
+     * @return the sink
+     */
+    public static OutputSink lines(Consumer<String> callback) {
+        return new OutputSink(SinkType.LINES, null, null, callback);
+    }
+
+    private final SinkType type;
+    private final File file;
+    private final FileObject fileobject;
+    private final Consumer<String> callback;
+
+    private OutputSink(SinkType type, File file, FileObject fileobject, Consumer<String> callback) {
+        this.type = type;
+        this.file = file;
+        this.fileobject = fileobject;
+        this.callback = callback;
+    }
+
+    /**
+     * Get the type of destination.
+     *
+     * @return the type
+     */
+    public SinkType getType() {
+        return type;
+    }
+
+    /**
+     * Get the file of a FILE sink.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the file of a FILEOBJECT sink.
+     *
+     * @return the file
+     */
+    public FileObject getFileObject() {
+        return fileobject;
+    }
+
+    /**
+     * Get the callback of a LINES sink.
+     *
+     * @return the callback
+     */
+    public Consumer<String> getCallback() {
+        return callback;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.activity;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("uk.theretiredprogrammer.activity.SchedulerWait")
+@Label("Activity Scheduler Wait")
+@Description("The time a task waited in an ActivityScheduler pool before starting")
+@Category({"Activities and Actions"})
+@StackTrace(false)
+class SchedulerWaitEvent extends Event {
+
+    @Label("Pool")
+    String pool;
+
+    @Label("Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long waittime;
+}
@@ -21,6 +21,7 @@ import uk.theretiredprogrammer.actions.DynamicAction;
 import uk.theretiredprogrammer.actions.NodeActions;
 import uk.theretiredprogrammer.actions.SaveBeforeAction;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityBatch;
 
 /**
  * The Interface for the ActivitiesAndActions Factory.
@@ -37,6 +38,13 @@ public interface A3Factory {
      */
     public Activity createActivity();
 
+    /**
+     * Create an ActivityBatch
+     *
+     * @return an ActivityBatch instance
+     */
+    public ActivityBatch createActivityBatch();
+
     /**
      * Create a DynamicAction.
      *
@@ -22,6 +22,7 @@ import uk.theretiredprogrammer.actions.DynamicAction;
 import uk.theretiredprogrammer.actions.NodeActions;
 import uk.theretiredprogrammer.actions.SaveBeforeAction;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityBatch;
 
 /**
  * The ActivitiesAndActions Factory. 
@@ -55,6 +56,20 @@ public class ActivitiesAndActionsFactory {
         return factory.createActivity();
     }
 
+    /**
+     * Create an ActivityBatch
+     *
+     * @return an ActivityBatch instance
+     * @throws ApplicationException a failure Exception
+     */
+    public static ActivityBatch createActivityBatch() throws ApplicationException {
+        A3Factory factory = Lookup.getDefault().lookup(A3Factory.class);
+        if (factory == null) {
+            throw new ApplicationException("Activities and Actions NBM is not loaded");
+        }
+        return factory.createActivityBatch();
+    }
+
     /**
      * create a DynamicAction
      *
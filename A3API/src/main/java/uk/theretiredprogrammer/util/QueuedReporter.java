@@ -0,0 +1,128 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.netbeans.api.io.IOProvider;
+import org.netbeans.api.io.InputOutput;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.WATCH;
+
+/**
+ * The queue of messages waiting to be written to IoTabs.
+ *
+ * Messages are written in batches, shortly after the first of a batch is
+ * queued, with each IoTab's handle cached between batches. Within a batch, after
+ * a few exact repeats of a message, further repeats are counted rather than
+ * written, and the count is written at the end of the batch.
+ */
+class QueuedReporter {
+
+    private static final long BATCHDELAY = 100; // ms
+    private static final int MAXREPEATS = 3;
+
+    private static final List<Message> queue = new ArrayList<>();
+    private static boolean flushscheduled = false;
+    private static final Map<String, InputOutput> iotabs = new HashMap<>();
+
+    static class Message {
+
+        final String iotabname;
+        final String text;
+        final boolean iserr;
+
+        Message(String iotabname, String text, boolean iserr) {
+            this.iotabname = iotabname;
+            this.text = text;
+            this.iserr = iserr;
+        }
+    }
+
+    static class Repeats {
+
+        int written = 0;
+        int suppressed = 0;
+        boolean iserr;
+    }
+
+    static void report(String iotabname, String text, boolean iserr) {
+        synchronized (queue) {
+            queue.add(new Message(iotabname, text, iserr));
+            if (!flushscheduled) {
+                flushscheduled = true;
+                ActivityScheduler.schedule(WATCH, () -> flush(), BATCHDELAY, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // writes all queued messages now - the scheduled flush then finds nothing to do
+    static synchronized void flush() {
+        List<Message> batch;
+        synchronized (queue) {
+            batch = new ArrayList<>(queue);
+            queue.clear();
+            flushscheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, List<Message>> bytab = new LinkedHashMap<>();
+        batch.forEach(message -> bytab.computeIfAbsent(message.iotabname, n -> new ArrayList<>()).add(message));
+        bytab.forEach((iotabname, messages) -> write(iotabname, messages));
+    }
+
+    private static void write(String iotabname, List<Message> messages) {
+        InputOutput io = getIO(iotabname);
+        io.show();
+        collapse(iotabname, messages).forEach(message -> (message.iserr ? io.getErr() : io.getOut()).println(message.text));
+    }
+
+    // the messages to be written to a tab - the counts of suppressed repeats come last
+    static List<Message> collapse(String iotabname, List<Message> messages) {
+        Map<String, Repeats> repeats = new LinkedHashMap<>();
+        List<Message> written = new ArrayList<>();
+        for (Message message : messages) {
+            Repeats seen = repeats.computeIfAbsent(message.text, k -> new Repeats());
+            if (seen.written < MAXREPEATS) {
+                seen.written++;
+                written.add(message);
+            } else {
+                seen.suppressed++;
+                seen.iserr = message.iserr;
+            }
+        }
+        repeats.forEach((text, seen) -> {
+            if (seen.suppressed > 0) {
+                written.add(new Message(iotabname, "... " + seen.suppressed + " more repeats of: " + text, seen.iserr));
+            }
+        });
+        return written;
+    }
+
+    private static InputOutput getIO(String iotabname) {
+        InputOutput io = iotabs.get(iotabname);
+        if (io == null || io.isClosed()) {
+            io = IOProvider.getDefault().getIO(iotabname, false);
+            iotabs.put(iotabname, io);
+        }
+        return io;
+    }
+}
@@ -16,9 +16,9 @@
 package uk.theretiredprogrammer.util;
 
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
-import org.netbeans.api.io.IOProvider;
-import org.netbeans.api.io.InputOutput;
+import org.openide.util.RequestProcessor;
 
 /**
  * A group of methods for reporting. both to the UI and the IDE log.
@@ -26,6 +26,11 @@ import org.netbeans.api.io.InputOutput;
  * It reports to both a logger and also writes to an IO Tab to ensure user
  * visibility
  *
+ * Writes to IO Tabs are queued and made in short batches, so that reporting
+ * does not hold up the caller; a message repeated within a batch is written a
+ * few times and then counted ("... 512 more repeats of this"). Log records are
+ * also written in the background, in the order they were reported.
+ *
  */
 public class UserReporting {
 
@@ -38,6 +43,8 @@ public class UserReporting {
      */
     private static final String DEFAULT_IOTAB = "Error Reporting";
     private static final String LOGGING = "uk.theretiredprogrammer.a3.UserReporting";
+    private static final Logger logger = Logger.getLogger(LOGGING);
+    private static final RequestProcessor logwriter = new RequestProcessor("a3-reportlog", 1);
 
     /**
      * Write an exception report to both the IoTab and also the IDE log
@@ -169,6 +176,16 @@ public class UserReporting {
         logInfo(DEFAULT_IOTAB, message);
     }
 
+    /**
+     * Write all queued messages to their IoTabs now.
+     *
+     * Use before writing directly to an IoTab, where the order of reports and
+     * other output matters.
+     */
+    public static void flush() {
+        QueuedReporter.flush();
+    }
+
     //   =======================================================================
     /**
      * Write an error message to the IDE log (SEVERE).
@@ -176,7 +193,7 @@ public class UserReporting {
      * @param message the error message
      */
     public static void errorLogOnly(String message) {
-        Logger.getLogger(LOGGING).log(Level.SEVERE, message);
+        log(Level.SEVERE, message, null);
     }
 
     /**
@@ -185,7 +202,7 @@ public class UserReporting {
      * @param message the warning message
      */
     public static void warningLogOnly(String message) {
-        Logger.getLogger(LOGGING).log(Level.WARNING, message);
+        log(Level.WARNING, message, null);
     }
 
     /**
@@ -194,42 +211,44 @@ public class UserReporting {
      * @param message the warning message
      */
     public static void infoLogOnly(String message) {
-        Logger.getLogger(LOGGING).log(Level.INFO, message);
+        log(Level.INFO, message, null);
     }
 
     //   =======================================================================
     private static void logException(String iotabname, Exception ex) {
-        InputOutput io = IOProvider.getDefault().getIO(iotabname, false);
-        io.show();
-        io.getErr().println(ex);
-        Logger.getLogger(LOGGING).log(Level.SEVERE, "", ex);
+        QueuedReporter.report(iotabname, ex.toString(), true);
+        log(Level.SEVERE, "", ex);
     }
 
     private static void logExceptionWithMessage(String iotabname, String message, Exception ex) {
-        InputOutput io = IOProvider.getDefault().getIO(iotabname, false);
-        io.show();
-        io.getErr().println(message + " " + ex);
-        Logger.getLogger(LOGGING).log(Level.SEVERE, message, ex);
+        QueuedReporter.report(iotabname, message + " " + ex, true);
+        log(Level.SEVERE, message, ex);
     }
 
     private static void logError(String iotabname, String message) {
-        InputOutput io = IOProvider.getDefault().getIO(iotabname, false);
-        io.show();
-        io.getErr().println(message);
-        Logger.getLogger(LOGGING).log(Level.SEVERE, message);
+        QueuedReporter.report(iotabname, message, true);
+        log(Level.SEVERE, message, null);
     }
 
     private static void logWarning(String iotabname, String message) {
-        InputOutput io = IOProvider.getDefault().getIO(iotabname, false);
-        io.show();
-        io.getErr().println(message);
-        Logger.getLogger(LOGGING).log(Level.WARNING, message);
+        QueuedReporter.report(iotabname, message, true);
+        log(Level.WARNING, message, null);
     }
 
     private static void logInfo(String iotabname, String message) {
-        InputOutput io = IOProvider.getDefault().getIO(iotabname, false);
-        io.show();
-        io.getOut().println(message);
-        Logger.getLogger(LOGGING).log(Level.INFO, message);
+        QueuedReporter.report(iotabname, message, false);
+        log(Level.INFO, message, null);
+    }
+
+    // the record is made now, so that it has the reporting thread and time, and is written by a single
+    // background thread, so that records stay in order
+    private static void log(Level level, String message, Exception ex) {
+        if (logger.isLoggable(level)) {
+            LogRecord record = new LogRecord(level, message);
+            record.setLoggerName(LOGGING);
+            record.setSourceClassName(UserReporting.class.getName());
+            record.setThrown(ex);
+            logwriter.post(() -> logger.log(record));
+        }
     }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueuedReporterTest {
+
+    public QueuedReporterTest() {
+    }
+
+    private List<String> collapse(String... texts) {
+        List<QueuedReporter.Message> messages = new ArrayList<>();
+        for (String text : texts) {
+            messages.add(new QueuedReporter.Message("test", text, true));
+        }
+        return QueuedReporter.collapse("test", messages).stream()
+                .map(message -> message.text).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testCollapse_distinct() {
+        System.out.println("collapse_distinct");
+        assertEquals(List.of("first", "second", "third"), collapse("first", "second", "third"));
+    }
+
+    @Test
+    public void testCollapse_repeats() {
+        System.out.println("collapse_repeats");
+        List<String> written = collapse("disk full", "disk full", "other", "disk full", "disk full", "disk full");
+        assertEquals(List.of("disk full", "disk full", "other", "disk full",
+                "... 2 more repeats of: disk full"), written);
+    }
+
+    @Test
+    public void testCollapse_differentNumbers() {
+        System.out.println("collapse_differentNumbers");
+        List<String> written = collapse("error at line 1", "error at line 2", "error at line 3", "error at line 4");
+        assertEquals(List.of("error at line 1", "error at line 2", "error at line 3", "error at line 4"), written);
+    }
+
+    @Test
+    public void testCollapse_eachBatch() {
+        System.out.println("collapse_eachBatch");
+        collapse("disk full", "disk full", "disk full", "disk full");
+        assertEquals(List.of("disk full"), collapse("disk full"));
+        assertEquals(List.of(), collapse());
+    }
+
+    @Test
+    public void testCollapse_keepsStream() {
+        System.out.println("collapse_keepsStream");
+        List<QueuedReporter.Message> messages = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            messages.add(new QueuedReporter.Message("test", "warning", false));
+        }
+        List<QueuedReporter.Message> written = QueuedReporter.collapse("test", messages);
+        assertEquals(4, written.size());
+        assertFalse(written.get(3).iserr);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022-2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.asciidoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// the files read when a document is published - the document itself, the files it includes (and those
+// they include) and its images; include targets are relative to the including file, and images to the
+// imagesdir attribute or else the document's folder
+public class AdocReferences {
+
+    private static final Pattern ATTRIBUTE = Pattern.compile("^:([\\w-]+):\\s*(.*)$");
+    private static final Pattern INCLUDE = Pattern.compile("^include::([^\\[]+)\\[");
+    private static final Pattern IMAGE = Pattern.compile("image::?([^\\s\\[]+)\\[");
+    private static final Pattern REFERENCE = Pattern.compile("\\{([\\w-]+)\\}");
+
+    private final File rootfolder;
+    private final Set<File> files = new LinkedHashSet<>();
+    private final Map<String, String> attributes = new HashMap<>();
+    private boolean resolved = true;
+
+    // null when a reference cannot be resolved to a local file, as the document's inputs are then unknown
+    public static List<File> find(File document) throws IOException {
+        AdocReferences references = new AdocReferences(document.getAbsoluteFile().getParentFile());
+        references.scan(document.getAbsoluteFile());
+        return references.resolved ? new ArrayList<>(references.files) : null;
+    }
+
+    private AdocReferences(File rootfolder) {
+        this.rootfolder = rootfolder;
+    }
+
+    private void scan(File file) throws IOException {
+        if (!files.add(file) || !file.isFile()) {
+            return; // already scanned, or missing - a missing file is still an input
+        }
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith("//")) {
+                continue;
+            }
+            Matcher attribute = ATTRIBUTE.matcher(line);
+            if (attribute.matches()) {
+                attributes.put(attribute.group(1), substitute(attribute.group(2).trim()));
+                continue;
+            }
+            Matcher include = INCLUDE.matcher(line);
+            if (include.find()) {
+                String target = toLocal(include.group(1));
+                if (target != null) {
+                    scan(resolve(file.getParentFile(), target));
+                }
+                continue;
+            }
+            Matcher image = IMAGE.matcher(line);
+            while (image.find()) {
+                String target = toLocal(image.group(1));
+                if (target != null) {
+                    String imagesdir = attributes.get("imagesdir");
+                    files.add(resolve(imagesdir == null ? rootfolder : resolve(rootfolder, imagesdir), target));
+                }
+            }
+        }
+    }
+
+    private String toLocal(String target) {
+        String substituted = substitute(target.trim());
+        if (substituted.contains("{") || substituted.contains("://") || substituted.startsWith("data:")) {
+            resolved = false;
+            return null;
+        }
+        return substituted;
+    }
+
+    private String substitute(String text) {
+        Matcher reference = REFERENCE.matcher(text);
+        StringBuilder sb = new StringBuilder();
+        while (reference.find()) {
+            String value = attributes.get(reference.group(1));
+            reference.appendReplacement(sb, Matcher.quoteReplacement(value == null ? reference.group() : value));
+        }
+        reference.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static File resolve(File folder, String path) {
+        File file = new File(path);
+        return (file.isAbsolute() ? file : new File(folder, path)).toPath().normalize().toFile();
+    }
+}
@@ -17,7 +17,14 @@ package uk.theretiredprogrammer.asciidoc;
 
 import java.awt.Image;
 import java.beans.PropertyChangeListener;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import javax.swing.Action;
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -27,6 +34,7 @@ import org.netbeans.api.project.ProjectInformation;
 import org.netbeans.spi.project.ProjectState;
 import org.netbeans.spi.project.ui.LogicalViewProvider;
 import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
 import org.openide.loaders.DataFolder;
 import org.openide.loaders.DataObjectNotFoundException;
 import org.openide.nodes.AbstractNode;
@@ -45,6 +53,8 @@ import uk.theretiredprogrammer.util.UserReporting;
 
 public class AsciiDocProject implements Project {
 
+    private static final String WORKERSCRIPT = "asciidoctor-worker.rb";
+
     private final FileObject projectDir;
     private Lookup lkp;
     private NodeActions nodeactions;
@@ -98,6 +108,93 @@ public class AsciiDocProject implements Project {
         return traceparameter + themeparameter + " -R " + asciidocproperties.getSourceRootFolder() + " -D " + asciidocproperties.getGeneratedRootFolder() + " ";
     }
 
+    public boolean isPublishCache() {
+        return asciidocproperties.isPublishCache();
+    }
+
+    public boolean isPublishWorker() {
+        return asciidocproperties.isPublishWorker();
+    }
+
+    // the worker script is copied into the project's .a3cache folder, so that ruby can run it
+    public File getWorkerScript() throws IOException {
+        File script = new File(new File(FileUtil.toFile(projectDir), ".a3cache"), WORKERSCRIPT);
+        byte[] content;
+        try (InputStream in = AsciiDocProject.class.getResourceAsStream(WORKERSCRIPT)) {
+            if (in == null) {
+                throw new IOException("Missing resource " + WORKERSCRIPT);
+            }
+            content = in.readAllBytes();
+        }
+        if (!script.isFile() || !Arrays.equals(content, Files.readAllBytes(script.toPath()))) {
+            script.getParentFile().mkdirs();
+            Files.write(script.toPath(), content);
+        }
+        return script;
+    }
+
+    public File getPublishedFile(FileObject input) {
+        FileObject srcroot = projectDir.getFileObject(asciidocproperties.getSourceRootFolder());
+        String relativefolder = srcroot == null ? null : FileUtil.getRelativePath(srcroot, input.getParent());
+        if (relativefolder == null) {
+            return null;
+        }
+        File generatedfolder = new File(FileUtil.toFile(projectDir), asciidocproperties.getGeneratedRootFolder());
+        return new File(new File(generatedfolder, relativefolder), input.getName() + ".pdf");
+    }
+
+    // the inputs shared by every document - the properties (which set the parameters) and the theme file,
+    // when the theme is named by a path
+    public List<File> getPublishCommonInputs() {
+        List<File> inputs = new ArrayList<>();
+        File projectfolder = FileUtil.toFile(projectDir);
+        inputs.add(new File(projectfolder, "asciidoc.properties"));
+        String theme = asciidocproperties.getTheme();
+        if (theme != null) {
+            File themefile = new File(theme).isAbsolute() ? new File(theme) : new File(projectfolder, theme);
+            if (themefile.isFile()) {
+                inputs.add(themefile);
+            }
+        }
+        return inputs;
+    }
+
+    // a document's inputs are its own file and the files it references, with the common inputs; null if
+    // these are not known, so that the document is always published
+    public List<File> getPublishInputs(FileObject document, List<File> commoninputs) {
+        File documentfile = FileUtil.toFile(document);
+        if (documentfile == null) {
+            return null;
+        }
+        List<File> references;
+        try {
+            references = AdocReferences.find(documentfile);
+        } catch (IOException ex) {
+            UserReporting.warningLogOnly("Unable to read the references of " + documentfile + " - " + ex);
+            return null;
+        }
+        if (references == null) {
+            return null;
+        }
+        // the cache folder and the generated documents are never inputs
+        File projectfolder = FileUtil.toFile(projectDir).getAbsoluteFile();
+        File cachefolder = new File(projectfolder, ".a3cache");
+        File generatedfolder = new File(projectfolder, asciidocproperties.getGeneratedRootFolder()).toPath().normalize().toFile();
+        List<File> inputs = new ArrayList<>();
+        for (File reference : references) {
+            if (!isWithin(reference, cachefolder) && !isWithin(reference, generatedfolder)) {
+                inputs.add(reference);
+            }
+        }
+        inputs.addAll(commoninputs);
+        Collections.sort(inputs);
+        return inputs;
+    }
+
+    private static boolean isWithin(File file, File folder) {
+        return file.toPath().startsWith(folder.toPath());
+    }
+
     public String getTabname() {
         return "Publish " + projectDir.getName();
     }
@@ -36,6 +36,8 @@ public class AsciiDocPropertyFile {
     private boolean paragraphLayout;
     private String theme;
     private boolean trace;
+    private boolean publishcache;
+    private boolean publishworker;
 
     public AsciiDocPropertyFile(FileObject projectdir, NodeActions nodeactions, ProjectState state) throws IOException, ApplicationException {
         loadProperties(projectdir);
@@ -66,6 +68,14 @@ public class AsciiDocPropertyFile {
         return trace;
     }
 
+    public boolean isPublishCache() {
+        return publishcache;
+    }
+
+    public boolean isPublishWorker() {
+        return publishworker;
+    }
+
     private void loadProperties(FileChangeType ftc, FileObject projectdir, ProjectState state) {
         switch (ftc) {
             case RENAMEDFROM:
@@ -123,5 +133,29 @@ public class AsciiDocPropertyFile {
                 trace = false;
                 UserReporting.warning("Unknown value for trace property - default selected");
         }
+        String pc = properties.getProperty("publish_cache", "no");
+        switch (pc) {
+            case "yes":
+                publishcache = true;
+                break;
+            case "no":
+                publishcache = false;
+                break;
+            default:
+                publishcache = false;
+                UserReporting.warning("Unknown value for publish_cache property - default selected");
+        }
+        String pw = properties.getProperty("publish_worker", "no");
+        switch (pw) {
+            case "yes":
+                publishworker = true;
+                break;
+            case "no":
+                publishworker = false;
+                break;
+            default:
+                publishworker = false;
+                UserReporting.warning("Unknown value for publish_worker property - default selected");
+        }
     }
 }
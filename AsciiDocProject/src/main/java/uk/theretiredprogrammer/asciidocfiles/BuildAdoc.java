@@ -17,7 +17,11 @@ package uk.theretiredprogrammer.asciidocfiles;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.netbeans.api.project.FileOwnerQuery;
 import org.netbeans.api.project.Project;
 import org.openide.loaders.DataObject;
@@ -26,8 +30,10 @@ import org.openide.awt.ActionReference;
 import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityBatch;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.asciidoc.AsciiDocProject;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
 import uk.theretiredprogrammer.util.ApplicationException;
@@ -53,12 +59,19 @@ public final class BuildAdoc implements ActionListener, Runnable {
 
     @Override
     public void actionPerformed(ActionEvent ev) {
-        RequestProcessor rp = new RequestProcessor("text-x-asciidoc_publish");
-        rp.post(this);
+        ActivityScheduler.submit(ACTION, this);
     }
 
     @Override
     public void run() {
+        ActivityBatch batch;
+        try {
+            batch = ActivitiesAndActionsFactory.createActivityBatch();
+        } catch (ApplicationException ex) {
+            UserReporting.exceptionWithMessage("Publish AsciiDocs", "Error configuring AsciiDoc Publishing", ex);
+            return;
+        }
+        Map<AsciiDocProject, List<File>> commoninputsbyproject = new HashMap<>();
         for (DataObject dataObject : context) {
             FileObject input = dataObject.getPrimaryFile();
             Project project = FileOwnerQuery.getOwner(input);
@@ -67,17 +80,30 @@ public final class BuildAdoc implements ActionListener, Runnable {
                 AsciiDocProject aproject = (AsciiDocProject) project;
                 try {
                     aproject.getSaveBeforeAction().saveIfModified(dataObject);
-                    activity = ActivitiesAndActionsFactory.createActivity()
-                            .setExternalProcess("asciidoctor",
-                                    "-r asciidoctor-pdf " + aproject.getAsciiDoctorParameters() + input.getPath(),
-                                    aproject.getProjectDirectory())
-                            .needsIOTab(aproject.getTabname())
+                    String parameters = "-r asciidoctor-pdf " + aproject.getAsciiDoctorParameters() + input.getPath();
+                    activity = ActivitiesAndActionsFactory.createActivity();
+                    if (aproject.isPublishWorker()) {
+                        // a warm asciidoctor, so Ruby and asciidoctor-pdf are only loaded once
+                        activity.setPersistentProcess("ruby", "\"" + aproject.getWorkerScript().getPath() + "\"",
+                                parameters, aproject.getProjectDirectory());
+                    } else {
+                        activity.setExternalProcess("asciidoctor", parameters, aproject.getProjectDirectory());
+                    }
+                    activity.needsIOTab(aproject.getTabname())
                             .stderrToIOSTDERR();
-                } catch (ApplicationException ex) {
+                    File published = aproject.getPublishedFile(input);
+                    if (aproject.isPublishCache() && published != null) {
+                        List<File> commoninputs = commoninputsbyproject.computeIfAbsent(aproject, p -> p.getPublishCommonInputs());
+                        List<File> inputs = aproject.getPublishInputs(input, commoninputs);
+                        if (inputs != null) {
+                            activity.cacheKey(inputs, List.of(published));
+                        }
+                    }
+                    batch.add(activity, "Publishing " + input.getNameExt());
+                } catch (ApplicationException | IOException ex) {
                     UserReporting.exceptionWithMessage(aproject.getTabname(), "Error configuring Project AsciiDoc Publishing Activity", ex);
                     return;
                 }
-                activity.run("Publishing " + input.getNameExt());
             } else {
                 SaveSelfBeforeAction.saveIfModified(dataObject);
                 try {
@@ -85,12 +111,13 @@ public final class BuildAdoc implements ActionListener, Runnable {
                             .setExternalProcess("asciidoctor", "-r asciidoctor-pdf " + input.getPath(), input.getParent())
                             .needsIOTab("Publish AsciiDocs")
                             .stderrToIOSTDERR();
+                    batch.add(activity, "Publishing " + input.getNameExt());
                 } catch (ApplicationException ex) {
                     UserReporting.exceptionWithMessage("Publish AsciiDocs", "Error configuring AsciiDoc Publishing Activity", ex);
                     return;
                 }
-                activity.run("Publishing " + input.getNameExt());
             }
         }
+        batch.run("Publishing " + context.size() + " AsciiDocs");
     }
 }
@@ -27,7 +27,8 @@ import org.openide.awt.ActionReference;
 import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.asciidoc.AsciiDocProject;
 import uk.theretiredprogrammer.util.ApplicationException;
 import uk.theretiredprogrammer.util.SaveSelfBeforeAction;
@@ -52,8 +53,7 @@ public final class ConvertHtmltoAdoc implements ActionListener, Runnable {
 
     @Override
     public void actionPerformed(ActionEvent ev) {
-        RequestProcessor rp = new RequestProcessor("text-x-htmlfragment_import");
-        rp.post(this);
+        ActivityScheduler.submit(ACTION, this);
     }
 
     @Override
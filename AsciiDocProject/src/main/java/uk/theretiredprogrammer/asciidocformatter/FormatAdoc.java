@@ -28,8 +28,9 @@ import org.openide.awt.ActionRegistration;
 import org.openide.cookies.EditorCookie;
 import org.openide.filesystems.FileObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Priority.INTERACTIVE;
 import uk.theretiredprogrammer.asciidoc.AsciiDocProject;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
 import uk.theretiredprogrammer.util.ApplicationException;
@@ -53,8 +54,7 @@ public final class FormatAdoc implements ActionListener, Runnable {
 
     @Override
     public void actionPerformed(ActionEvent ev) {
-        RequestProcessor rp = new RequestProcessor("text-x-asciidoc_format");
-        rp.post(this);
+        ActivityScheduler.submit(INTERACTIVE, this);
     }
 
     @Override
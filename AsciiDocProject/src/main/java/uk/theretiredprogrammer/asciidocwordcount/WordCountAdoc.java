@@ -32,8 +32,10 @@ import org.openide.awt.ActionRegistration;
 import org.openide.cookies.EditorCookie;
 import org.openide.filesystems.FileObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityBatch;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Priority.INTERACTIVE;
 import static uk.theretiredprogrammer.activity.Activity.NEWLINE;
 import uk.theretiredprogrammer.asciidoc.AsciiDocProject;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
@@ -58,12 +60,18 @@ public final class WordCountAdoc implements ActionListener, Runnable {
 
     @Override
     public void actionPerformed(ActionEvent ev) {
-        RequestProcessor rp = new RequestProcessor("text-x-asciidoc_wordcount");
-        rp.post(this);
+        ActivityScheduler.submit(INTERACTIVE, this);
     }
 
     @Override
     public void run() {
+        ActivityBatch batch;
+        try {
+            batch = ActivitiesAndActionsFactory.createActivityBatch();
+        } catch (ApplicationException ex) {
+            UserReporting.exceptionWithMessage("Publish AsciiDocs", "Error Word Count", ex);
+            return;
+        }
         for (DataObject dataObject : context) {
             FileObject input = dataObject.getPrimaryFile();
             Project project = FileOwnerQuery.getOwner(input);
@@ -80,12 +88,13 @@ public final class WordCountAdoc implements ActionListener, Runnable {
                         .setMethod((stdoutwriter) -> wordCount(dataObject, iotabname, stdoutwriter))
                         .needsIOTab(iotabname)
                         .stdoutToIOSTDOUT();
+                batch.add(activity, "Counting Words");
             } catch (ApplicationException ex) {
                 UserReporting.exceptionWithMessage(iotabname, "Error Word Count", ex);
                 return;
             }
-            activity.run("Counting Words");
         }
+        batch.run("Counting Words in " + context.size() + " AsciiDocs");
     }
 
     private void wordCount(DataObject dataobject, String iotabname, Writer stdoutwriter) {
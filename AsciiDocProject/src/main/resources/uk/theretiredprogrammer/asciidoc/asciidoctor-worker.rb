@@ -0,0 +1,72 @@
+# A warm asciidoctor worker for A3 publishing - keeps Ruby and asciidoctor loaded between requests.
+#
+# Requests arrive on stdin as a line "R <length>" followed by that many bytes, holding the asciidoctor
+# command line arguments; a line "C" abandons the request being run. The reply to each request is its
+# stdout and stderr as "O <length>" and "E <length>" frames, ending with a line "X <exitcode>".
+# The worker exits when stdin is closed.
+require 'asciidoctor'
+require 'asciidoctor/cli'
+require 'shellwords'
+require 'stringio'
+
+CANCELLED = 130
+
+$stdin.binmode
+channel = $stdout.dup
+channel.binmode
+$stdout = $stderr # nothing else may write to the reply channel
+
+requests = Queue.new
+lock = Mutex.new
+running = nil
+
+Thread.new do
+  while (header = $stdin.gets)
+    kind, length = header.split
+    case kind
+    when 'R'
+      requests << $stdin.read(length.to_i).force_encoding(Encoding::UTF_8)
+    when 'C'
+      lock.synchronize { running&.kill }
+    end
+  end
+  requests << nil
+end
+
+write_frame = lambda do |kind, text|
+  bytes = text.b
+  channel.write("#{kind} #{bytes.bytesize}\n", bytes) unless bytes.empty?
+end
+
+while (request = requests.pop)
+  out = StringIO.new
+  err = StringIO.new
+  code = CANCELLED
+  lock.synchronize do
+    running = Thread.new do
+      saved = [$stdout, $stderr, Asciidoctor::LoggerManager.logger]
+      $stdout = out
+      $stderr = err
+      Asciidoctor::LoggerManager.logger = Asciidoctor::Logger.new(err)
+      begin
+        invoker = Asciidoctor::Cli::Invoker.new(Shellwords.split(request))
+        invoker.redirect_streams(out, err)
+        invoker.invoke!
+        code = invoker.code
+      rescue SystemExit => e
+        code = e.status
+      rescue Exception => e
+        err.puts "asciidoctor: FAILED: #{e.message}"
+        code = 1
+      ensure
+        $stdout, $stderr, Asciidoctor::LoggerManager.logger = saved
+      end
+    end
+  end
+  running.join
+  lock.synchronize { running = nil }
+  write_frame.call('O', out.string)
+  write_frame.call('E', err.string)
+  channel.write("X #{code}\n")
+  channel.flush
+end
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 richard linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.asciidoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdocReferencesTest {
+
+    public AdocReferencesTest() {
+    }
+
+    private File write(File folder, String name, String... lines) throws IOException {
+        File file = new File(folder, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), List.of(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private File folder() throws IOException {
+        return Files.createTempDirectory("adocreferences").toFile().getCanonicalFile();
+    }
+
+    @Test
+    public void testFind_includesAndImages() throws IOException {
+        System.out.println("find_includesAndImages");
+        File folder = folder();
+        File chapter = write(folder, "chapters/ch1.adoc", "include::part.adoc[]", "image::ch1.png[]");
+        File part = write(folder, "chapters/part.adoc", "text");
+        File document = write(folder, "book.adoc", "= Book", "include::chapters/ch1.adoc[]",
+                "A line with image:icon.png[icon] inline.", "// include::ignored.adoc[]");
+        List<File> references = AdocReferences.find(document);
+        assertEquals(List.of(document, chapter, part, new File(folder, "ch1.png"), new File(folder, "icon.png")), references);
+    }
+
+    @Test
+    public void testFind_imagesdir() throws IOException {
+        System.out.println("find_imagesdir");
+        File folder = folder();
+        File document = write(folder, "doc.adoc", ":imagesdir: images", ":name: logo", "image::{name}.png[]");
+        assertEquals(List.of(document, new File(folder, "images/logo.png")), AdocReferences.find(document));
+    }
+
+    @Test
+    public void testFind_missingInclude() throws IOException {
+        System.out.println("find_missingInclude");
+        File folder = folder();
+        File document = write(folder, "doc.adoc", "include::missing.adoc[]");
+        assertEquals(List.of(document, new File(folder, "missing.adoc")), AdocReferences.find(document));
+    }
+
+    @Test
+    public void testFind_unresolved() throws IOException {
+        System.out.println("find_unresolved");
+        File folder = folder();
+        assertNull(AdocReferences.find(write(folder, "a.adoc", "include::{undefined}/x.adoc[]")));
+        assertNull(AdocReferences.find(write(folder, "b.adoc", "image::https://example.com/x.png[]")));
+    }
+
+    @Test
+    public void testFind_includeCycle() throws IOException {
+        System.out.println("find_includeCycle");
+        File folder = folder();
+        File other = write(folder, "other.adoc", "include::doc.adoc[]");
+        File document = write(folder, "doc.adoc", "include::other.adoc[]");
+        assertEquals(List.of(document, other), AdocReferences.find(document));
+    }
+}
@@ -28,8 +28,10 @@ import org.openide.awt.ActionReference;
 import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityBatch;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.epub.EPUBProject;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
 import uk.theretiredprogrammer.util.ApplicationException;
@@ -54,12 +56,19 @@ public final class ConvertEPUBFile implements ActionListener, Runnable {
     
     @Override
     public void actionPerformed(ActionEvent ev) {
-        RequestProcessor rp = new RequestProcessor("epub_convert");
-        rp.post(this);
+        ActivityScheduler.submit(ACTION, this);
     }
     
     @Override
     public void run() {
+        ActivityBatch batch;
+        try {
+            batch = ActivitiesAndActionsFactory.createActivityBatch()
+                    .needsIOTab("EPUB");
+        } catch (ApplicationException ex) {
+            UserReporting.exception("EPUB", ex);
+            return;
+        }
         for (DataObject dataObject : context) {
             FileObject epub = dataObject.getPrimaryFile();
             String epubname = epub.getName();
@@ -72,14 +81,14 @@ public final class ConvertEPUBFile implements ActionListener, Runnable {
                     activity = ActivitiesAndActionsFactory.createActivity()
                             .setMethod(() -> convertAllHTMLSections(aproject.getProjectDirectory(), epubname, epub, outputfolder, "EPUB"))
                             .needsIOTab("EPUB");
-                    
+                    batch.add(activity, "Converting EPUB " + epub.getNameExt());
                 } catch (IOException | ApplicationException ex) {
                     UserReporting.exception("EPUB", ex);
                     return;
                 }
-                activity.run("Converting EPUB " + epub.getNameExt());
             }
         }
+        batch.run("Converting " + context.size() + " EPUBs");
     }
     
     private void convertAllHTMLSections(FileObject dir, String name, FileObject file, FileObject outputfolder, String iotabname) {
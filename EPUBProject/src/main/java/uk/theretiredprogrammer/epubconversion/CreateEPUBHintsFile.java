@@ -27,8 +27,9 @@ import org.openide.awt.ActionReference;
 import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.epub.EPUBProject;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
 import uk.theretiredprogrammer.util.UserReporting;
@@ -52,8 +53,7 @@ public final class CreateEPUBHintsFile implements ActionListener, Runnable {
 
     @Override
     public void actionPerformed(ActionEvent ev) {
-        RequestProcessor rp = new RequestProcessor("epub_hints");
-        rp.post(this);
+        ActivityScheduler.submit(ACTION, this);
     }
 
     @Override
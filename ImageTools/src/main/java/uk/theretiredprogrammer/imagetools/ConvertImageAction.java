@@ -28,8 +28,9 @@ import org.openide.awt.ActionReference;
 import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
 import uk.theretiredprogrammer.util.ApplicationException;
 import uk.theretiredprogrammer.util.UserReporting;
@@ -130,8 +131,7 @@ public final class ConvertImageAction implements ActionListener {
     }
 
     private void doConvertActivity(FileObject input, String outputext) {
-        RequestProcessor rp = new RequestProcessor("imageconversion");
-        rp.post(new RunConvertActivity(input, outputext));
+        ActivityScheduler.submit(ACTION, new RunConvertActivity(input, outputext));
     }
 
     private class RunConvertActivity implements Runnable {
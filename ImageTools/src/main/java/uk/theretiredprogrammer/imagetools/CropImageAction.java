@@ -34,8 +34,9 @@ import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileUtil;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
 import uk.theretiredprogrammer.util.ApplicationException;
 import uk.theretiredprogrammer.util.UserReporting;
@@ -149,8 +150,7 @@ public final class CropImageAction implements ActionListener {
     }
 
     private void doCropActivity(FileObject input, int w, int h, int left, int top) {
-        RequestProcessor rp = new RequestProcessor("imageconversion");
-        rp.post(new RunCropActivity(input, w, h, left, top));
+        ActivityScheduler.submit(ACTION, new RunCropActivity(input, w, h, left, top));
     }
 
     private class RunCropActivity implements Runnable {
@@ -36,8 +36,9 @@ import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileUtil;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
 import uk.theretiredprogrammer.util.ApplicationException;
 import uk.theretiredprogrammer.util.UserReporting;
@@ -138,8 +139,7 @@ public final class ResizeImageAction implements ActionListener {
     }
 
     private void doResizeActivity(FileObject input, int dim, boolean ishval) {
-        RequestProcessor rp = new RequestProcessor("imageconversion");
-        rp.post(new RunResizeActivity(input, dim, ishval));
+        ActivityScheduler.submit(ACTION, new RunResizeActivity(input, dim, ishval));
     }
 
     private class RunResizeActivity implements Runnable {
@@ -30,9 +30,10 @@ import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileUtil;
 import org.openide.loaders.DataObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import org.openide.windows.TopComponent;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.screencapture.ScreenCapture;
 import static uk.theretiredprogrammer.screencapture.ScreenCapture.Priority.FILE;
 import static uk.theretiredprogrammer.screencapture.ScreenCapture.Priority.PROJECT;
@@ -55,11 +56,9 @@ import uk.theretiredprogrammer.util.UserReporting;
 @Messages("CTL_ScreenCaptureAction=Screen Capture")
 public final class ScreenCaptureAction implements ActionListener, Runnable {
 
-    private static final RequestProcessor RP = new RequestProcessor("screen capture");
-
     @Override
     public void actionPerformed(ActionEvent e) {
-        RP.post(this);
+        ActivityScheduler.submit(ACTION, this);
     }
 
     @Override
@@ -161,17 +161,31 @@ public class JBakeProject implements Project {
                 this.project = project;
                 nodeactions.setNodeBasicProjectActions();
                 try {
-                    Activity activity = ActivitiesAndActionsFactory.createActivity()
-                            .setExternalProcess("jbake", "-b", projectDir)
-                            .stdoutToIOSTDOUT()
-                            .stderrToIOSTDERR()
-                            .needsIOTab("Bake " + projectDir.getName());
-                    nodeactions.setNodeActions(ActivitiesAndActionsFactory.createDynamicAction("Bake").onActionAsync(() -> activity.run("Baking")));
+                    nodeactions.setNodeActions(ActivitiesAndActionsFactory.createDynamicAction("Bake").onActionAsync(() -> bake()));
+                    nodeactions.setRunOnChange(() -> createBakeActivity(), "Baking", projectDir.getFileObject("content"),
+                            projectDir.getFileObject("templates"), projectDir.getFileObject("assets"));
                 } catch (ApplicationException ex) {
                     UserReporting.exceptionWithMessage("Error when parsing the actions properties file", ex);
                 }
             }
 
+            // each bake has its own Activity, as a menu bake may overlap a run on change
+            private Activity createBakeActivity() throws ApplicationException {
+                return ActivitiesAndActionsFactory.createActivity()
+                        .setExternalProcess("jbake", "-b", projectDir)
+                        .stdoutToIOSTDOUT()
+                        .stderrToIOSTDERR()
+                        .needsIOTab("Bake " + projectDir.getName());
+            }
+
+            private void bake() {
+                try {
+                    createBakeActivity().run("Baking");
+                } catch (ApplicationException ex) {
+                    UserReporting.exceptionWithMessage("Bake " + projectDir.getName(), "Error configuring the Bake Activity", ex);
+                }
+            }
+
             @Override
             public Action[] getActions(boolean arg0) {
                 return nodeactions.getAllNodeActions();
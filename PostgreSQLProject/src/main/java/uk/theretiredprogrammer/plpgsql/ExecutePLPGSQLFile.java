@@ -27,8 +27,10 @@ import org.openide.awt.ActionReference;
 import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityBatch;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.postgresql.PostgreSQLProject;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
 import uk.theretiredprogrammer.util.ApplicationException;
@@ -53,13 +55,16 @@ public final class ExecutePLPGSQLFile implements ActionListener, Runnable {
 
     @Override
     public void actionPerformed(ActionEvent ev) {
-        RequestProcessor rp = new RequestProcessor("text-x-plpgsql_execute");
-        rp.post(this);
+        ActivityScheduler.submit(ACTION, this);
     }
 
     @Override
     public void run() {
         try {
+            // scripts may depend on the effects of earlier scripts, so run them in selection order
+            ActivityBatch batch = ActivitiesAndActionsFactory.createActivityBatch()
+                    .needsIOTab("Execute PgSQL")
+                    .setConcurrency(1);
             for (DataObject dataObject : context) {
                 FileObject input = dataObject.getPrimaryFile();
                 Project project = FileOwnerQuery.getOwner(input);
@@ -77,13 +82,16 @@ public final class ExecutePLPGSQLFile implements ActionListener, Runnable {
                                 .needsIOTab("Execute PgSQL")
                                 .stdoutToIOSTDOUT()
                                 .stderrToIOSTDERR();
+                        batch.add(activity, "Executing " + input.getNameExt());
                     } catch (ApplicationException ex) {
                         UserReporting.exceptionWithMessage("Execute PgSQL", "Error when creating Activity", ex);
                         break;
                     }
-                    activity.run("Executing " + input.getNameExt());
                 }
             }
+            batch.run("Executing " + context.size() + " files");
+        } catch (ApplicationException ex) {
+            UserReporting.exceptionWithMessage("Execute PgSQL", "Error when creating ActivityBatch", ex);
         } catch (IOException ex) {
             UserReporting.exceptionWithMessage("Execute PgSQL", "failed to run plpgsql: ", ex);
         }
@@ -30,7 +30,8 @@ import org.openide.awt.ActionReference;
 import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.util.SaveSelfBeforeAction;
 
 @ActionID(
@@ -52,8 +53,7 @@ public final class ExecuteRawCSVFile implements ActionListener, Runnable {
 
     @Override
     public void actionPerformed(ActionEvent ev) {
-        RequestProcessor rp = new RequestProcessor("text-x-rawcsv_execute");
-        rp.post(this);
+        ActivityScheduler.submit(ACTION, this);
     }
 
     @Override
@@ -17,7 +17,6 @@ package uk.theretiredprogrammer.html2textile;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -34,9 +33,11 @@ import org.openide.awt.ActionRegistration;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileUtil;
 import org.openide.util.NbBundle.Messages;
-import org.openide.util.RequestProcessor;
 import org.xml.sax.SAXException;
 import uk.theretiredprogrammer.activity.Activity;
+import uk.theretiredprogrammer.activity.ActivityBatch;
+import uk.theretiredprogrammer.activity.ActivityScheduler;
+import static uk.theretiredprogrammer.activity.ActivityScheduler.Pool.ACTION;
 import uk.theretiredprogrammer.util.ActivitiesAndActionsFactory;
 import uk.theretiredprogrammer.util.ApplicationException;
 import uk.theretiredprogrammer.util.SaveSelfBeforeAction;
@@ -62,35 +63,43 @@ public final class ActionHtml2Textile implements ActionListener, Runnable {
 
     @Override
     public void actionPerformed(ActionEvent ev) {
-        RequestProcessor rp = new RequestProcessor("text-html_convert");
-        rp.post(this);
+        ActivityScheduler.submit(ACTION, this);
     }
 
     @Override
     public void run() {
         ErrHandler err = new ErrHandler((s) -> UserReporting.error(IOTABNAME, s));
+        ActivityBatch batch;
+        try {
+            // the conversion rules are held statically, so conversions must not overlap
+            batch = ActivitiesAndActionsFactory.createActivityBatch()
+                    .needsIOTab(IOTABNAME)
+                    .setConcurrency(1);
+        } catch (ApplicationException ex) {
+            err.exception(ex);
+            return;
+        }
         for (DataObject dataObject : context) {
             FileObject input = dataObject.getPrimaryFile();
             SaveSelfBeforeAction.saveIfModified(dataObject);
-            Activity translate;
             try {
-                Reader rdr = getReader(input);
-                PrintWriter wtr = getWriter(input);
-                translate = ActivitiesAndActionsFactory.createActivity()
-                        .setMethod(() -> convert2textile(rdr, wtr, err, FileUtil.toFile(input)))
+                // files are opened as each conversion runs, so a failure leaves the other files untouched
+                Activity translate = ActivitiesAndActionsFactory.createActivity()
+                        .setMethod(() -> convert2textile(input, err))
                         .needsIOTab(IOTABNAME);
-            } catch (IOException | ApplicationException ex) {
+                batch.add(translate, "Converting " + input.getName() + ".html");
+            } catch (ApplicationException ex) {
                 err.exception(ex);
                 return;
             }
-            translate.run("Converting " + input.getName() + ".html");
         }
+        batch.run("Converting " + context.size() + " html files");
     }
 
-    private void convert2textile(Reader from, PrintWriter textilewriter, ErrHandler err, File inputfile) {
-        try (from; textilewriter) {
+    private void convert2textile(FileObject input, ErrHandler err) {
+        try (Reader from = getReader(input); PrintWriter textilewriter = getWriter(input)) {
             Html2Textile h2t = new Html2Textile();
-            h2t.convertor(from, textilewriter, err, inputfile, null);
+            h2t.convertor(from, textilewriter, err, FileUtil.toFile(input), null);
         } catch (IOException | ParserConfigurationException | TransformerException | SAXException ex) {
             err.exception(ex);
         }